@@ -0,0 +1,126 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * writes orders, products and taxes files used by benchmarks
+ *
+ * @author beshoy
+ */
+public class BenchmarkData {
+
+    public static final String DELIMITER = ",";
+    public static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    public static final LocalDate FIRST_DATE = LocalDate.of(2020, 1, 1);
+
+    private static final String[] STATES = {"TX", "WA", "KY", "CA"};
+    private static final String[] TAX_RATES = {"4.45", "9.25", "6.00", "25.00"};
+    private static final String[] PRODUCTS = {"Carpet", "Laminate", "Tile", "Wood"};
+    private static final String[] COSTS = {"2.25", "1.75", "3.50", "5.15"};
+    private static final String[] LABOR_COSTS = {"2.10", "2.10", "4.15", "4.75"};
+
+    /**
+     * creates orders spread evenly over dates, same seed gives same orders
+     *
+     * @param ordersCount number of orders
+     * @param dateFiles number of dates
+     * @return list of orders
+     */
+    public static List<Order> createOrders(int ordersCount, int dateFiles) {
+        Random random = new Random(42);
+        List<Order> orders = new ArrayList<>(ordersCount);
+        for (int i = 0; i < ordersCount; i++) {
+            int state = random.nextInt(STATES.length);
+            int product = random.nextInt(PRODUCTS.length);
+            BigDecimal area = new BigDecimal(100 + random.nextInt(900)).setScale(2);
+            BigDecimal taxRate = new BigDecimal(TAX_RATES[state]);
+            BigDecimal cost = new BigDecimal(COSTS[product]);
+            BigDecimal laborCost = new BigDecimal(LABOR_COSTS[product]);
+            BigDecimal materialTotal = area.multiply(cost).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal laborTotal = area.multiply(laborCost).setScale(2, RoundingMode.HALF_UP);
+            BigDecimal tax = materialTotal.add(laborTotal).multiply(taxRate.divide(new BigDecimal("100"))).setScale(2, RoundingMode.HALF_UP);
+            orders.add(new Order(FIRST_DATE.plusDays(i % dateFiles), i + 1, "Customer, " + i, STATES[state], taxRate,
+                    PRODUCTS[product], area, cost, laborCost, materialTotal, laborTotal, tax,
+                    materialTotal.add(laborTotal).add(tax)));
+        }
+        return orders;
+    }
+
+    /**
+     * writes orders files into a folder, one file per date
+     *
+     * @param ordersFolder folder to write files to
+     * @param orders orders to write
+     * @throws DataPersistenceException
+     */
+    public static void writeOrders(Path ordersFolder, List<Order> orders) throws DataPersistenceException {
+        OrdersFileFormat format = new OrdersFileFormat(ordersFolder.toString(), DELIMITER, ORDERS_HEADER);
+        List<Order> sortedOrders = new ArrayList<>(orders);
+        sortedOrders.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getOrderNumber));
+        int start = 0;
+        for (int i = 1; i <= sortedOrders.size(); i++) {
+            if (i == sortedOrders.size() || !sortedOrders.get(i).getOrderDate().equals(sortedOrders.get(start).getOrderDate())) {
+                format.writeOrdersFile(sortedOrders.get(start).getOrderDate(), sortedOrders.subList(start, i));
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * writes products file with the products used by created orders
+     *
+     * @param productsFile file to write
+     * @throws IOException
+     */
+    public static void writeProducts(Path productsFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("ProductType,CostPerSquareFoot,LaborCostPerSquareFoot");
+        for (int i = 0; i < PRODUCTS.length; i++) {
+            lines.add(PRODUCTS[i] + "," + COSTS[i] + "," + LABOR_COSTS[i]);
+        }
+        Files.write(productsFile, lines);
+    }
+
+    /**
+     * writes taxes file with the states used by created orders
+     *
+     * @param taxesFile file to write
+     * @throws IOException
+     */
+    public static void writeTaxes(Path taxesFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("State,StateName,TaxRate");
+        for (int i = 0; i < STATES.length; i++) {
+            lines.add(STATES[i] + "," + STATES[i] + "," + TAX_RATES[i]);
+        }
+        Files.write(taxesFile, lines);
+    }
+
+    /**
+     * deletes folder created for a benchmark
+     *
+     * @param folder folder to delete
+     * @throws IOException
+     */
+    public static void deleteFolder(Path folder) throws IOException {
+        try ( Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * compares HashMap with IntObjectMap as map of orders by order number. run
+ * with -prof gc, gc.alloc.rate.norm of the put benchmarks is the memory taken
+ * by a filled map
+ *
+ * @author beshoy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntObjectMapBenchmark {
+
+    private static final int LOOKUPS = 10000;
+
+    @Param({"10000", "1000000"})
+    int ordersCount;
+
+    private List<Order> orders;
+    private int[] lookupNumbers;
+    private Map<Integer, Order> hashMap;
+    private IntObjectMap<Order> intObjectMap;
+
+    @Setup(Level.Trial)
+    public void createMaps() {
+        orders = BenchmarkData.createOrders(ordersCount, 365);
+        hashMap = putAllHashMap();
+        intObjectMap = putAllIntObjectMap();
+        // order numbers looked up in random order so lookups miss the cache like real requests
+        Random random = new Random(42);
+        lookupNumbers = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookupNumbers[i] = orders.get(random.nextInt(ordersCount)).getOrderNumber();
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Order> putAllHashMap() {
+        Map<Integer, Order> map = new HashMap<>();
+        for (Order order : orders) {
+            map.put(order.getOrderNumber(), order);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public IntObjectMap<Order> putAllIntObjectMap() {
+        IntObjectMap<Order> map = new IntObjectMap<>();
+        for (Order order : orders) {
+            map.put(order.getOrderNumber(), order);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public void getHashMap(Blackhole blackhole) {
+        for (int orderNumber : lookupNumbers) {
+            blackhole.consume(hashMap.get(orderNumber));
+        }
+    }
+
+    @Benchmark
+    public void getIntObjectMap(Blackhole blackhole) {
+        for (int orderNumber : lookupNumbers) {
+            blackhole.consume(intObjectMap.get(orderNumber));
+        }
+    }
+}
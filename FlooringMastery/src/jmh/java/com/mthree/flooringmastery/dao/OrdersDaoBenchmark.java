@@ -0,0 +1,94 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures loading, saving and exporting orders with OrdersDaoFileImpl
+ *
+ * @author beshoy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrdersDaoBenchmark {
+
+    @Param({"10000", "100000"})
+    int ordersCount;
+
+    @Param({"10", "365"})
+    int dateFiles;
+
+    // threads used to load orders files, 1 loads files one by one
+    @Param({"1", "4"})
+    int loadParallelism;
+
+    private Path ordersFolder;
+    private OrdersDaoFileImpl loadedOrdersDao;
+    private List<Order> orders;
+
+    @Setup(Level.Trial)
+    public void createOrders() throws IOException, DataPersistenceException {
+        ordersFolder = Files.createTempDirectory("orders-benchmark");
+        orders = BenchmarkData.createOrders(ordersCount, dateFiles);
+        BenchmarkData.writeOrders(ordersFolder, orders);
+        loadedOrdersDao = createOrdersDao();
+        loadedOrdersDao.loadOrders();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteOrders() throws IOException {
+        BenchmarkData.deleteFolder(ordersFolder);
+    }
+
+    @Benchmark
+    public OrdersDao loadOrders() throws DataPersistenceException {
+        OrdersDaoFileImpl ordersDao = createOrdersDao();
+        ordersDao.loadOrders();
+        return ordersDao;
+    }
+
+    /**
+     * changes one order of every date so every date file is written again
+     */
+    @Benchmark
+    public void saveAllDates() throws DataPersistenceException {
+        for (int i = 0; i < Math.min(dateFiles, orders.size()); i++) {
+            loadedOrdersDao.saveOrder(orders.get(i));
+        }
+        loadedOrdersDao.saveOrders();
+    }
+
+    @Benchmark
+    public void exportAllOrders() throws DataPersistenceException {
+        loadedOrdersDao.exportAllOrders();
+    }
+
+    private OrdersDaoFileImpl createOrdersDao() {
+        return new OrdersDaoFileImpl(ordersFolder.toString(), BenchmarkData.DELIMITER,
+                ordersFolder.resolve("export.txt").toString(), BenchmarkData.ORDERS_HEADER, loadParallelism);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * measures converting single orders from and to orders file records
+ *
+ * @author beshoy
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrdersFileFormatBenchmark {
+
+    private OrdersFileFormat format;
+    private Order order;
+    private ByteBuffer record;
+
+    @Setup
+    public void createRecord() {
+        format = new OrdersFileFormat(".", BenchmarkData.DELIMITER, BenchmarkData.ORDERS_HEADER);
+        List<Order> orders = BenchmarkData.createOrders(1, 1);
+        order = orders.get(0);
+        record = ByteBuffer.wrap((format.marshallOrder(order) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public Order unmarshallOrder() {
+        record.rewind();
+        return format.unmarshallOrder(format.newReader(record), order.getOrderDate());
+    }
+
+    @Benchmark
+    public void marshallOrder(Blackhole blackhole) {
+        blackhole.consume(format.marshallOrder(order));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.service;
+
+import com.mthree.flooringmastery.dao.AuditDaoFIleImpl;
+import com.mthree.flooringmastery.dao.BenchmarkData;
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrdersDaoFileImpl;
+import com.mthree.flooringmastery.dao.ProductsDaoFileImpl;
+import com.mthree.flooringmastery.dao.StatesDaoFileImpl;
+import com.mthree.flooringmastery.dto.Order;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures pricing an order and listing orders of a date through the service
+ *
+ * @author beshoy
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FlooringMasteryServiceBenchmark {
+
+    @Param({"10000", "100000"})
+    int ordersCount;
+
+    @Param({"10", "365"})
+    int dateFiles;
+
+    private Path dataFolder;
+    private FlooringMasteryService service;
+    private Order newOrder;
+    private LocalDate orderDate;
+
+    @Setup(Level.Trial)
+    public void createService() throws IOException, DataPersistenceException {
+        dataFolder = Files.createTempDirectory("service-benchmark");
+        Path ordersFolder = Files.createDirectory(dataFolder.resolve("Orders"));
+        List<Order> orders = BenchmarkData.createOrders(ordersCount, dateFiles);
+        BenchmarkData.writeOrders(ordersFolder, orders);
+        BenchmarkData.writeProducts(dataFolder.resolve("Products.txt"));
+        BenchmarkData.writeTaxes(dataFolder.resolve("Taxes.txt"));
+        service = new FlooringMasteryServiceImpl(
+                new ProductsDaoFileImpl(dataFolder.resolve("Products.txt").toString(), BenchmarkData.DELIMITER),
+                new StatesDaoFileImpl(dataFolder.resolve("Taxes.txt").toString(), BenchmarkData.DELIMITER),
+                new OrdersDaoFileImpl(ordersFolder.toString(), BenchmarkData.DELIMITER,
+                        dataFolder.resolve("export.txt").toString(), BenchmarkData.ORDERS_HEADER),
+                new AuditDaoFIleImpl(dataFolder.resolve("audit.txt").toString()));
+        service.loadAllData();
+        newOrder = orders.get(0);
+        orderDate = newOrder.getOrderDate();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteData() throws IOException {
+        BenchmarkData.deleteFolder(dataFolder);
+    }
+
+    @Benchmark
+    public Order calcualteOrder() throws DataPersistenceException {
+        return service.calcualteOrder(newOrder);
+    }
+
+    @Benchmark
+    public List<Order> getDateOrders() throws DataPersistenceException, NoOrderFoundException {
+        return service.getDateOrders(orderDate);
+    }
+}
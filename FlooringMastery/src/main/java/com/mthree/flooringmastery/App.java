@@ -7,7 +7,6 @@ import com.mthree.flooringmastery.controller.FlooringMasteryController;
 import com.mthree.flooringmastery.dao.DataPersistenceException;
 import com.mthree.flooringmastery.service.NoEditDataExceprtion;
 import com.mthree.flooringmastery.service.NoOrderFoundException;
-import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
 /**
@@ -16,9 +15,15 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
  */
 public class App {
     public static void main(String[] args) throws DataPersistenceException, NoOrderFoundException, NoEditDataExceprtion {
-           ApplicationContext appContext
+        ClassPathXmlApplicationContext appContext
                 = new ClassPathXmlApplicationContext("classpath:applicationContext.xml");
+        // closes journal and writes queued audit entries if program is stopped
+        appContext.registerShutdownHook();
         FlooringMasteryController controller = appContext.getBean("controller", FlooringMasteryController.class);
-        controller.run();
+        try {
+            controller.run();
+        } finally {
+            appContext.close();
+        }
     }
 }
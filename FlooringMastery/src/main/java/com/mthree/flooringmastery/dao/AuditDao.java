@@ -3,6 +3,9 @@
  */
 package com.mthree.flooringmastery.dao;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
  * collection of methods to handle audit entries
  *
@@ -18,4 +21,30 @@ public interface AuditDao {
      */
     public void writeAuditEntry(String entry) throws DataPersistenceException;
 
+    /**
+     * gets all entries written for an order
+     *
+     * @param orderNumber order number
+     * @return entries in the order they were written
+     * @throws DataPersistenceException
+     */
+    public List<String> getOrderHistory(int orderNumber) throws DataPersistenceException;
+
+    /**
+     * gets all entries written within a time window
+     *
+     * @param from start of window, inclusive
+     * @param to end of window, inclusive
+     * @return entries in the order they were written
+     * @throws DataPersistenceException
+     */
+    public List<String> getAuditEntries(LocalDateTime from, LocalDateTime to) throws DataPersistenceException;
+
+    /**
+     * makes sure all written entries are in log file and releases it
+     *
+     * @throws DataPersistenceException
+     */
+    public void close() throws DataPersistenceException;
+
 }
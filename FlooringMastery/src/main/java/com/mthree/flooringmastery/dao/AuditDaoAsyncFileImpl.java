@@ -0,0 +1,274 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * implements AuditDao using text file written by a background thread. callers
+ * only put entries into a bounded queue, writer thread keeps audit file open
+ * and writes entries in batches. callers wait for free space when queue is
+ * full
+ *
+ * @author beshoy
+ */
+public class AuditDaoAsyncFileImpl implements AuditDao {
+
+    private String auditFile;
+    // ring buffer between callers and writer thread
+    private BlockingQueue<String> pendingEntries;
+    // written entries are flushed once this many are waiting or flush interval passed
+    private int batchSize;
+    private long flushIntervalMillis;
+    // rotated segments of audit file, guards audit file
+    private AuditSegments segments;
+    private Thread writerThread;
+    private volatile boolean closed;
+    // entries are queued under read lock and close takes write lock, so no entry is queued
+    // after writer has seen audit closed and drained the queue
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    // first write error, entries are not written after it
+    private volatile IOException failure;
+    // number of entries queued and number of entries flushed to audit file, flushed count guarded by this
+    private final AtomicLong queuedCount = new AtomicLong();
+    private long flushedCount;
+
+    public AuditDaoAsyncFileImpl() {
+    }
+
+    public AuditDaoAsyncFileImpl(String auditFile, int bufferCapacity, int batchSize, long flushIntervalMillis) {
+        this(auditFile, bufferCapacity, batchSize, flushIntervalMillis, 0, 0);
+    }
+
+    public AuditDaoAsyncFileImpl(String auditFile, int bufferCapacity, int batchSize, long flushIntervalMillis, long maxSegmentBytes, long maxSegmentAgeMillis) {
+        this.auditFile = auditFile;
+        this.pendingEntries = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+        this.segments = new AuditSegments(auditFile, maxSegmentBytes, maxSegmentAgeMillis);
+    }
+
+    @Override
+    public void writeAuditEntry(String entry) throws DataPersistenceException {
+        closeLock.readLock().lock();
+        try {
+            checkFailure();
+            if (closed) {
+                throw new DataPersistenceException("Could not persist audit information, audit is closed.");
+            }
+            startWriter();
+            // timestamp is taken when entry is made, not when it is written
+            String auditEntry = LocalDateTime.now().toString() + " : " + entry;
+            try {
+                // queue is full, wait for writer instead of dropping entry, but stop waiting if writer failed
+                while (!pendingEntries.offer(auditEntry, flushIntervalMillis, TimeUnit.MILLISECONDS)) {
+                    checkFailure();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataPersistenceException("Could not persist audit information.", ex);
+            }
+            queuedCount.incrementAndGet();
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> getOrderHistory(int orderNumber) throws DataPersistenceException {
+        awaitFlushed();
+        synchronized (segments) {
+            try {
+                return segments.getOrderEntries(orderNumber);
+            } catch (IOException | RuntimeException e) {
+                throw new DataPersistenceException("Could not read audit information.", e);
+            }
+        }
+    }
+
+    @Override
+    public List<String> getAuditEntries(LocalDateTime from, LocalDateTime to) throws DataPersistenceException {
+        awaitFlushed();
+        synchronized (segments) {
+            try {
+                return segments.getEntries(from, to);
+            } catch (IOException | RuntimeException e) {
+                throw new DataPersistenceException("Could not read audit information.", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws DataPersistenceException {
+        // waits for entries being queued, entries made after this fail
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        Thread writer;
+        synchronized (this) {
+            writer = writerThread;
+        }
+        if (writer != null) {
+            // writer drains queued entries and stops within one flush interval,
+            // it is not interrupted because that would close the audit file mid write
+            try {
+                writer.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * starts writer thread on first entry, or again if it stopped while audit
+     * is still open
+     */
+    private synchronized void startWriter() {
+        if (writerThread == null || !writerThread.isAlive()) {
+            writerThread = new Thread(this::writeEntries, "audit-writer");
+            // entries are drained by close, thread must not keep program running
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * writer thread loop, writes entries until audit is closed and queue is
+     * empty, rotates audit file whenever it is due
+     */
+    private void writeEntries() {
+        try {
+            while (writeUntilRotationDue()) {
+                synchronized (segments) {
+                    segments.rotate();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            // callers waiting for space would wait forever
+            pendingEntries.clear();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * takes entries in batches and writes them to audit file, file stays open
+     * until it has to be rotated
+     *
+     * @return true if audit file has to be rotated, false once audit is closed
+     * and queue is empty
+     * @throws IOException
+     */
+    private boolean writeUntilRotationDue() throws IOException {
+        try ( BufferedWriter out = Files.newBufferedWriter(Paths.get(auditFile), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            int unflushedCount = 0;
+            long lastFlush = System.nanoTime();
+            while (!closed || !pendingEntries.isEmpty()) {
+                String entry = null;
+                try {
+                    entry = pendingEntries.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    // writer only stops once audit is closed and queue is empty, close does not interrupt it
+                    // and stopping early would leave callers waiting on a full queue
+                    continue;
+                }
+                if (entry != null) {
+                    batch.add(entry);
+                    pendingEntries.drainTo(batch, batchSize - 1);
+                    synchronized (segments) {
+                        for (String batchEntry : batch) {
+                            out.write(batchEntry);
+                            out.newLine();
+                        }
+                    }
+                    unflushedCount += batch.size();
+                    batch.clear();
+                }
+                long sinceFlush = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastFlush);
+                boolean flushDue = unflushedCount >= batchSize || (unflushedCount > 0 && (entry == null || sinceFlush >= flushIntervalMillis));
+                if (flushDue || entry == null) {
+                    boolean rotationDue;
+                    synchronized (segments) {
+                        out.flush();
+                        rotationDue = segments.isRotationDue();
+                    }
+                    markFlushed(unflushedCount);
+                    unflushedCount = 0;
+                    lastFlush = System.nanoTime();
+                    if (rotationDue) {
+                        return true;
+                    }
+                }
+            }
+            synchronized (segments) {
+                out.flush();
+            }
+            markFlushed(unflushedCount);
+        }
+        return false;
+    }
+
+    private synchronized void markFlushed(int count) {
+        if (count > 0) {
+            flushedCount += count;
+            notifyAll();
+        }
+    }
+
+    /**
+     * waits until entries queued so far are in audit file, so queries see
+     * entries written just before them
+     *
+     * @throws DataPersistenceException
+     */
+    private synchronized void awaitFlushed() throws DataPersistenceException {
+        long target = queuedCount.get();
+        boolean interrupted = false;
+        while (flushedCount < target && writerThread != null && writerThread.isAlive()) {
+            checkFailure();
+            try {
+                wait(flushIntervalMillis);
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    /**
+     * throws exception if writer thread could not write entries
+     *
+     * @throws DataPersistenceException
+     */
+    private void checkFailure() throws DataPersistenceException {
+        if (failure != null) {
+            throw new DataPersistenceException("Could not persist audit information.", failure);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * implements AuditDao using text file
@@ -16,27 +17,68 @@ import java.time.LocalDateTime;
 public class AuditDaoFIleImpl implements AuditDao {
 
     private String auditFile;
+    // rotated segments of audit file, guards audit file
+    private AuditSegments segments;
 
     public AuditDaoFIleImpl() {
     }
 
     public AuditDaoFIleImpl(String auditFile) {
+        this(auditFile, 0, 0);
+    }
+
+    public AuditDaoFIleImpl(String auditFile, long maxSegmentBytes, long maxSegmentAgeMillis) {
         this.auditFile = auditFile;
+        this.segments = new AuditSegments(auditFile, maxSegmentBytes, maxSegmentAgeMillis);
     }
 
     @Override
     public void writeAuditEntry(String entry) throws DataPersistenceException {
-        PrintWriter out;
-        try {
-            // open audit file and append to it
-            out = new PrintWriter(new FileWriter(auditFile, true));
-        } catch (IOException e) {
-            throw new DataPersistenceException("Could not persist audit information.", e);
+        synchronized (segments) {
+            // open audit file and append to it, file is closed after each entry
+            try ( PrintWriter out = new PrintWriter(new FileWriter(auditFile, true))) {
+                // get timestamp object to be used for entry log
+                LocalDateTime timestamp = LocalDateTime.now();
+                // write entry to file
+                out.println(timestamp.toString() + " : " + entry);
+                out.flush();// flush output
+            } catch (IOException e) {
+                throw new DataPersistenceException("Could not persist audit information.", e);
+            }
+            try {
+                if (segments.isRotationDue()) {
+                    segments.rotate();
+                }
+            } catch (IOException e) {
+                throw new DataPersistenceException("Could not rotate audit file.", e);
+            }
         }
-        // get timestamp object to be used for entry log
-        LocalDateTime timestamp = LocalDateTime.now();
-        // write entry to file
-        out.println(timestamp.toString() + " : " + entry);
-        out.flush();// flush output
+    }
+
+    @Override
+    public List<String> getOrderHistory(int orderNumber) throws DataPersistenceException {
+        synchronized (segments) {
+            try {
+                return segments.getOrderEntries(orderNumber);
+            } catch (IOException | RuntimeException e) {
+                throw new DataPersistenceException("Could not read audit information.", e);
+            }
+        }
+    }
+
+    @Override
+    public List<String> getAuditEntries(LocalDateTime from, LocalDateTime to) throws DataPersistenceException {
+        synchronized (segments) {
+            try {
+                return segments.getEntries(from, to);
+            } catch (IOException | RuntimeException e) {
+                throw new DataPersistenceException("Could not read audit information.", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws DataPersistenceException {
+        // nothing is kept open between entries
     }
 }
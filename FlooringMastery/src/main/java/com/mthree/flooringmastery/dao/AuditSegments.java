@@ -0,0 +1,391 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * rotates audit file into compressed segments and answers audit queries.
+ * each segment has a small index file holding time range of its entries and
+ * offsets of entries of each order number, so queries only decompress
+ * segments that hold matching entries. callers must synchronize on this
+ * object while writing audit file and while using it
+ *
+ * @author beshoy
+ */
+class AuditSegments {
+
+    private static final String ORDER_PREFIX = "Order Number ";
+    private static final String ENTRY_SEPARATOR = " : ";
+    private static final DateTimeFormatter SEGMENT_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    private final Path auditPath;
+    // audit file is rotated once it is this big or its first entry is this old, 0 never rotates
+    private final long maxSegmentBytes;
+    private final long maxSegmentAgeMillis;
+    // time of first entry in audit file, read once and reset by rotation
+    private LocalDateTime activeFrom;
+
+    /**
+     * creates segments stored next to audit file
+     *
+     * @param auditFile audit file entries are written to
+     * @param maxSegmentBytes size audit file is rotated at, 0 to not rotate by
+     * size
+     * @param maxSegmentAgeMillis age of first entry audit file is rotated at, 0
+     * to not rotate by time
+     */
+    AuditSegments(String auditFile, long maxSegmentBytes, long maxSegmentAgeMillis) {
+        this.auditPath = Paths.get(auditFile);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeMillis = maxSegmentAgeMillis;
+    }
+
+    /**
+     * checks if audit file is big or old enough to be rotated
+     *
+     * @return true if audit file should be rotated
+     * @throws IOException
+     */
+    boolean isRotationDue() throws IOException {
+        if (!Files.exists(auditPath) || Files.size(auditPath) == 0) {
+            return false;
+        }
+        if (maxSegmentBytes > 0 && Files.size(auditPath) >= maxSegmentBytes) {
+            return true;
+        }
+        if (maxSegmentAgeMillis > 0) {
+            if (activeFrom == null) {
+                activeFrom = readFirstEntryTime();
+            }
+            return activeFrom != null
+                    && activeFrom.plusNanos(maxSegmentAgeMillis * 1_000_000).isBefore(LocalDateTime.now());
+        }
+        return false;
+    }
+
+    /**
+     * compresses audit file into a new segment with its index and empties
+     * audit file. audit file must not be open for writing
+     *
+     * @throws IOException
+     */
+    void rotate() throws IOException {
+        if (!Files.exists(auditPath) || Files.size(auditPath) == 0) {
+            return;
+        }
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        // order number to offsets of its entries in uncompressed segment
+        Map<Integer, List<Long>> orderOffsets = new TreeMap<>();
+        long offset = 0;
+        List<String> lines = Files.readAllLines(auditPath, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            LocalDateTime entryTime = getEntryTime(line);
+            if (entryTime != null) {
+                from = from == null || entryTime.isBefore(from) ? entryTime : from;
+                to = to == null || entryTime.isAfter(to) ? entryTime : to;
+            }
+            int orderNumber = getOrderNumber(line);
+            if (orderNumber >= 0) {
+                orderOffsets.computeIfAbsent(orderNumber, (number) -> new ArrayList<>()).add(offset);
+            }
+            offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        if (from == null) {
+            from = to = LocalDateTime.now();
+        }
+        deleteOrphanSegments();
+        String segmentName = getSegmentName(from);
+        Path segmentPath = auditPath.resolveSibling(segmentName + ".gz");
+        Path indexPath = auditPath.resolveSibling(segmentName + ".idx");
+        Path tempPath = auditPath.resolveSibling(segmentName + ".tmp");
+        // segment is written with normalized line breaks so index offsets match it
+        try ( OutputStream out = new GZIPOutputStream(Files.newOutputStream(tempPath))) {
+            for (String line : lines) {
+                out.write(line.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+            }
+        }
+        Files.move(tempPath, segmentPath, StandardCopyOption.ATOMIC_MOVE);
+        try ( BufferedWriter out = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+            out.write(from + "," + to);
+            out.newLine();
+            for (Map.Entry<Integer, List<Long>> entry : orderOffsets.entrySet()) {
+                StringBuilder indexLine = new StringBuilder().append(entry.getKey());
+                entry.getValue().forEach((entryOffset) -> indexLine.append(',').append(entryOffset));
+                out.write(indexLine.toString());
+                out.newLine();
+            }
+        }
+        Files.move(tempPath, indexPath, StandardCopyOption.ATOMIC_MOVE);
+        // entries are in segment now
+        Files.write(auditPath, new byte[0]);
+        activeFrom = null;
+    }
+
+    /**
+     * gets all entries of an order, reads only segments whose index has the
+     * order number and only its entries in them
+     *
+     * @param orderNumber order number
+     * @return entries in the order they were written
+     * @throws IOException
+     */
+    List<String> getOrderEntries(int orderNumber) throws IOException {
+        List<String> entries = new ArrayList<>();
+        for (Path indexPath : getIndexPaths()) {
+            List<Long> offsets = readIndex(indexPath).offsets.get(orderNumber);
+            if (offsets != null) {
+                entries.addAll(readSegmentEntries(getSegmentPath(indexPath), offsets));
+            }
+        }
+        entries.addAll(readActiveEntries((line) -> getOrderNumber(line) == orderNumber));
+        return entries;
+    }
+
+    /**
+     * gets all entries written within a time window, reads only segments
+     * whose time range overlaps the window
+     *
+     * @param from start of window, inclusive
+     * @param to end of window, inclusive
+     * @return entries in the order they were written
+     * @throws IOException
+     */
+    List<String> getEntries(LocalDateTime from, LocalDateTime to) throws IOException {
+        Predicate<String> inWindow = (line) -> {
+            LocalDateTime entryTime = getEntryTime(line);
+            return entryTime != null && !entryTime.isBefore(from) && !entryTime.isAfter(to);
+        };
+        List<String> entries = new ArrayList<>();
+        for (Path indexPath : getIndexPaths()) {
+            SegmentIndex index = readIndex(indexPath);
+            if (!index.to.isBefore(from) && !index.from.isAfter(to)) {
+                try ( BufferedReader in = openSegment(getSegmentPath(indexPath))) {
+                    in.lines().filter(inWindow).forEach(entries::add);
+                }
+            }
+        }
+        entries.addAll(readActiveEntries(inWindow));
+        return entries;
+    }
+
+    /**
+     * gets order number of an entry
+     *
+     * @param line audit entry
+     * @return order number or -1 if entry is not about an order
+     */
+    static int getOrderNumber(String line) {
+        int start = line.indexOf(ORDER_PREFIX);
+        if (start < 0) {
+            return -1;
+        }
+        start += ORDER_PREFIX.length();
+        int end = start;
+        while (end < line.length() && Character.isDigit(line.charAt(end))) {
+            end++;
+        }
+        return end == start ? -1 : Integer.parseInt(line.substring(start, end));
+    }
+
+    /**
+     * gets timestamp of an entry
+     *
+     * @param line audit entry
+     * @return entry time or null if line has no valid timestamp
+     */
+    static LocalDateTime getEntryTime(String line) {
+        int separator = line.indexOf(ENTRY_SEPARATOR);
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(line.substring(0, separator));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private List<String> readActiveEntries(Predicate<String> filter) throws IOException {
+        List<String> entries = new ArrayList<>();
+        if (Files.exists(auditPath)) {
+            try ( BufferedReader in = Files.newBufferedReader(auditPath, StandardCharsets.UTF_8)) {
+                in.lines().filter(filter).forEach(entries::add);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * reads entries at given offsets of a segment, segment is decompressed
+     * only up to last offset
+     *
+     * @param segmentPath compressed segment
+     * @param offsets ascending offsets of entries in uncompressed segment
+     * @return entries at offsets
+     * @throws IOException
+     */
+    private List<String> readSegmentEntries(Path segmentPath, List<Long> offsets) throws IOException {
+        List<String> entries = new ArrayList<>();
+        try ( InputStream in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(segmentPath)))) {
+            long position = 0;
+            for (long offset : offsets) {
+                while (position < offset) {
+                    long skipped = in.skip(offset - position);
+                    if (skipped <= 0) {
+                        throw new IOException("audit segment is shorter than its index: " + segmentPath);
+                    }
+                    position += skipped;
+                }
+                byte[] line = readLine(in);
+                position += line.length + 1;
+                entries.add(new String(line, StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    private byte[] readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int value;
+        while ((value = in.read()) != -1 && value != '\n') {
+            line.write(value);
+        }
+        return line.toByteArray();
+    }
+
+    private BufferedReader openSegment(Path segmentPath) throws IOException {
+        return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(segmentPath)), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * gets index files of all segments, oldest first
+     *
+     * @return index file paths
+     * @throws IOException
+     */
+    private List<Path> getIndexPaths() throws IOException {
+        List<Path> indexPaths = new ArrayList<>();
+        Path folder = auditPath.toAbsolutePath().getParent();
+        try ( DirectoryStream<Path> paths = Files.newDirectoryStream(folder, getSegmentPrefix() + "*.idx")) {
+            paths.forEach(indexPaths::add);
+        }
+        indexPaths.sort(null);
+        return indexPaths;
+    }
+
+    private SegmentIndex readIndex(Path indexPath) throws IOException {
+        List<String> lines = Files.readAllLines(indexPath, StandardCharsets.UTF_8);
+        String[] range = lines.get(0).split(",");
+        SegmentIndex index = new SegmentIndex(LocalDateTime.parse(range[0]), LocalDateTime.parse(range[1]));
+        for (String line : lines.subList(1, lines.size())) {
+            String[] fields = line.split(",");
+            List<Long> offsets = new ArrayList<>();
+            for (int i = 1; i < fields.length; i++) {
+                offsets.add(Long.parseLong(fields[i]));
+            }
+            index.offsets.put(Integer.parseInt(fields[0]), offsets);
+        }
+        return index;
+    }
+
+    private Path getSegmentPath(Path indexPath) {
+        String indexName = indexPath.getFileName().toString();
+        return indexPath.resolveSibling(indexName.substring(0, indexName.length() - ".idx".length()) + ".gz");
+    }
+
+    /**
+     * creates unused segment name from time of its first entry, names sort in
+     * the order segments were written. a name is used if either its segment or
+     * its index exists, so a rotation never moves onto a file left by another
+     *
+     * @param from time of first entry
+     * @return segment name without extension
+     */
+    private String getSegmentName(LocalDateTime from) {
+        LocalDateTime nameTime = from;
+        while (Files.exists(auditPath.resolveSibling(getSegmentPrefix() + nameTime.format(SEGMENT_NAME_FORMAT) + ".gz"))
+                || Files.exists(auditPath.resolveSibling(getSegmentPrefix() + nameTime.format(SEGMENT_NAME_FORMAT) + ".idx"))) {
+            nameTime = nameTime.plusNanos(1_000_000);
+        }
+        return getSegmentPrefix() + nameTime.format(SEGMENT_NAME_FORMAT);
+    }
+
+    /**
+     * deletes segments that have no index. segment is moved into place before
+     * its index and audit file is emptied after both, so a segment without
+     * index was left by a rotation that stopped midway and its entries are
+     * still in audit file
+     *
+     * @throws IOException
+     */
+    private void deleteOrphanSegments() throws IOException {
+        Path folder = auditPath.toAbsolutePath().getParent();
+        List<Path> orphanPaths = new ArrayList<>();
+        try ( DirectoryStream<Path> paths = Files.newDirectoryStream(folder, getSegmentPrefix() + "*.gz")) {
+            for (Path segmentPath : paths) {
+                String segmentName = segmentPath.getFileName().toString();
+                if (!Files.exists(segmentPath.resolveSibling(segmentName.substring(0, segmentName.length() - ".gz".length()) + ".idx"))) {
+                    orphanPaths.add(segmentPath);
+                }
+            }
+        }
+        for (Path orphanPath : orphanPaths) {
+            Files.deleteIfExists(orphanPath);
+        }
+    }
+
+    private String getSegmentPrefix() {
+        String fileName = auditPath.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return (extension > 0 ? fileName.substring(0, extension) : fileName) + "-";
+    }
+
+    private LocalDateTime readFirstEntryTime() throws IOException {
+        try ( BufferedReader in = Files.newBufferedReader(auditPath, StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            return line == null ? null : getEntryTime(line);
+        }
+    }
+
+    /**
+     * time range and order offsets of a segment
+     */
+    private static class SegmentIndex {
+
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final Map<Integer, List<Long>> offsets = new TreeMap<>();
+
+        private SegmentIndex(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
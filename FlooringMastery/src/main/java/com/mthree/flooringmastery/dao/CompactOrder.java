@@ -0,0 +1,131 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Money;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.State;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * order kept in memory with primitive fields. state, tax rate, product and
+ * costs are ids into an OrderDictionary and money amounts are cents, Order
+ * object is only created when order is read. an order with values that would
+ * not come back exactly the same, like an amount without exactly 2 decimals,
+ * is kept as it is instead
+ *
+ * @author beshoy
+ */
+final class CompactOrder {
+
+    private final int orderNumber;
+    private final int epochDay;
+    private final short stateId;
+    private final short productId;
+    private final String customerName;
+    private final long areaUnscaled;
+    private final int areaScale;
+    private final long materialCost;
+    private final long laborCost;
+    private final long tax;
+    private final long total;
+    // order that could not be compacted, null for compacted orders
+    private final Order uncompacted;
+
+    private CompactOrder(Order order) {
+        this.orderNumber = order.getOrderNumber();
+        this.epochDay = (int) order.getOrderDate().toEpochDay();
+        this.stateId = 0;
+        this.productId = 0;
+        this.customerName = null;
+        this.areaUnscaled = 0;
+        this.areaScale = 0;
+        this.materialCost = 0;
+        this.laborCost = 0;
+        this.tax = 0;
+        this.total = 0;
+        this.uncompacted = order;
+    }
+
+    private CompactOrder(Order order, int stateId, int productId) {
+        this.orderNumber = order.getOrderNumber();
+        this.epochDay = (int) order.getOrderDate().toEpochDay();
+        this.stateId = (short) stateId;
+        this.productId = (short) productId;
+        this.customerName = order.getCustomerName();
+        this.areaUnscaled = order.getArea().unscaledValue().longValue();
+        this.areaScale = order.getArea().scale();
+        this.materialCost = Money.toCents(order.getMaterialCost());
+        this.laborCost = Money.toCents(order.getLaborCost());
+        this.tax = Money.toCents(order.getTax());
+        this.total = Money.toCents(order.getTotal());
+        this.uncompacted = null;
+    }
+
+    /**
+     * creates compact form of an order
+     *
+     * @param order order to compact
+     * @param dictionary dictionary to add order state and product to
+     * @return compact order
+     */
+    static CompactOrder of(Order order, OrderDictionary dictionary) {
+        if (!canCompact(order)) {
+            return new CompactOrder(order);
+        }
+        int stateId = dictionary.stateId(order.getState(), order.getTaxRate());
+        int productId = dictionary.productId(order.getProductType(), order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot());
+        if (stateId < 0 || productId < 0) {
+            return new CompactOrder(order);
+        }
+        return new CompactOrder(order, stateId, productId);
+    }
+
+    int getOrderNumber() {
+        return orderNumber;
+    }
+
+    LocalDate getOrderDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * creates order object with the same values order was compacted from
+     *
+     * @param dictionary dictionary order was compacted with
+     * @return new Order object, or the kept order if it was not compacted
+     */
+    Order toOrder(OrderDictionary dictionary) {
+        if (uncompacted != null) {
+            return uncompacted;
+        }
+        State state = dictionary.getState(stateId);
+        Product product = dictionary.getProduct(productId);
+        return new Order(getOrderDate(), orderNumber, customerName, state.getStateAbbreviation(), state.getTaxRate(),
+                product.getProductType(), BigDecimal.valueOf(areaUnscaled, areaScale), product.getCostPerSquareFoot(),
+                product.getLaborCostPerSquareFoot(), Money.toBigDecimal(materialCost), Money.toBigDecimal(laborCost),
+                Money.toBigDecimal(tax), Money.toBigDecimal(total));
+    }
+
+    /**
+     * checks order area fits a long and its amounts can be kept as cents
+     * without changing their scale
+     *
+     * @param order order to check
+     * @return true if order comes back the same from primitive fields
+     */
+    static boolean canCompact(Order order) {
+        return isCents(order.getMaterialCost()) && isCents(order.getLaborCost()) && isCents(order.getTax())
+                && isCents(order.getTotal()) && order.getArea() != null && order.getArea().unscaledValue().bitLength() < Long.SIZE;
+    }
+
+    /**
+     * checks amount has exactly 2 decimals and fits a long as cents
+     */
+    private static boolean isCents(BigDecimal amount) {
+        return amount != null && amount.scale() == Money.SCALE && amount.unscaledValue().bitLength() < Long.SIZE;
+    }
+}
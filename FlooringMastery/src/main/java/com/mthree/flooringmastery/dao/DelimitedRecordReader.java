@@ -0,0 +1,271 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * reads delimited text records field by field straight from a byte buffer.
+ * each field is scanned once, numbers are parsed from the bytes without
+ * creating strings and repeated short values can be shared between records
+ *
+ * @author beshoy
+ */
+class DelimitedRecordReader {
+
+    // longest unscaled value that can not overflow a long while parsing
+    private static final int MAX_LONG_DIGITS = 18;
+    // number of distinct pooled strings kept per reader
+    private static final int POOL_SIZE = 64;
+
+    private final ByteBuffer buffer;
+    private final byte delimiter;
+    // holds field bytes when buffer is not backed by an array
+    private byte[] scratch = new byte[128];
+    // decoded values of short repeated fields such as state and product type
+    private final byte[][] pooledBytes = new byte[POOL_SIZE][];
+    private final String[] pooledStrings = new String[POOL_SIZE];
+    private int pooledCount;
+    // scale of the last parsed number
+    private int scale;
+    // true if the last parsed number had more digits than a long can hold
+    private boolean overflow;
+
+    /**
+     * creates reader for records between buffer position and limit
+     *
+     * @param buffer buffer holding the records
+     * @param delimiter single character fields delimiter
+     */
+    DelimitedRecordReader(ByteBuffer buffer, char delimiter) {
+        this.buffer = buffer;
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * checks if there is another record, skips blank lines
+     *
+     * @return true if another record is available
+     */
+    boolean hasNextRecord() {
+        while (buffer.hasRemaining()) {
+            byte current = buffer.get(buffer.position());
+            if (current != '\r' && current != '\n') {
+                return true;
+            }
+            buffer.position(buffer.position() + 1);
+        }
+        return false;
+    }
+
+    /**
+     * skips the rest of current record including its line break
+     */
+    void endRecord() {
+        while (buffer.hasRemaining()) {
+            if (buffer.get() == '\n') {
+                return;
+            }
+        }
+    }
+
+    /**
+     * reads next field as int
+     *
+     * @return int value of field
+     * @throws NumberFormatException if field is not a number
+     */
+    int nextInt() {
+        long value = nextUnscaled(false);
+        if (overflow || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+            throw new NumberFormatException("not an int value");
+        }
+        return (int) value;
+    }
+
+    /**
+     * reads next field as BigDecimal keeping the scale written in the field,
+     * same result as new BigDecimal(field)
+     *
+     * @return BigDecimal value of field
+     * @throws NumberFormatException if field is not a decimal
+     */
+    BigDecimal nextDecimal() {
+        int start = buffer.position();
+        long unscaled = nextUnscaled(true);
+        // values too long for a long are rare, they use the string constructor
+        if (overflow) {
+            return new BigDecimal(decode(start, fieldEnd(start) - start));
+        }
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * reads next field as string
+     *
+     * @return field value
+     */
+    String nextString() {
+        int start = buffer.position();
+        int end = fieldEnd(start);
+        String value = decode(start, end - start);
+        skipField(end);
+        return value;
+    }
+
+    /**
+     * reads next field as string replacing escaped character, the string is
+     * only copied again when the escaped character is found
+     *
+     * @param escaped character written in place of the original one
+     * @param original character to restore
+     * @return field value
+     */
+    String nextString(char escaped, char original) {
+        int start = buffer.position();
+        int end = start;
+        boolean hasEscaped = false;
+        while (end < buffer.limit() && !isFieldEnd(buffer.get(end))) {
+            hasEscaped |= buffer.get(end) == escaped;
+            end++;
+        }
+        String value = decode(start, end - start);
+        skipField(end);
+        return hasEscaped ? value.replace(escaped, original) : value;
+    }
+
+    /**
+     * reads next field as string shared with earlier fields of same value, used
+     * for short values that repeat between records
+     *
+     * @return field value
+     */
+    String nextPooledString() {
+        int start = buffer.position();
+        int end = fieldEnd(start);
+        int length = end - start;
+        for (int i = 0; i < pooledCount; i++) {
+            if (matches(pooledBytes[i], start, length)) {
+                skipField(end);
+                return pooledStrings[i];
+            }
+        }
+        String value = decode(start, length);
+        if (pooledCount < POOL_SIZE) {
+            byte[] bytes = new byte[length];
+            buffer.get(start, bytes);
+            pooledBytes[pooledCount] = bytes;
+            pooledStrings[pooledCount] = value;
+            pooledCount++;
+        }
+        skipField(end);
+        return value;
+    }
+
+    /**
+     * parses next field digits into a long, remembers digits after the point in
+     * scale and sets overflow when the digits do not fit a long
+     *
+     * @param allowPoint true if field can have decimal point
+     * @return unscaled value of field
+     */
+    private long nextUnscaled(boolean allowPoint) {
+        int start = buffer.position();
+        int end = fieldEnd(start);
+        int index = start;
+        boolean negative = false;
+        if (index < end && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+            negative = buffer.get(index) == '-';
+            index++;
+        }
+        long value = 0;
+        int digits = 0;
+        scale = 0;
+        overflow = false;
+        boolean afterPoint = false;
+        for (; index < end; index++) {
+            byte current = buffer.get(index);
+            if (current >= '0' && current <= '9') {
+                value = value * 10 + (current - '0');
+                digits++;
+                overflow |= digits > MAX_LONG_DIGITS;
+                if (afterPoint) {
+                    scale++;
+                }
+            } else if (current == '.' && allowPoint && !afterPoint) {
+                afterPoint = true;
+            } else {
+                throw new NumberFormatException("invalid number: " + decode(start, end - start));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("invalid number: " + decode(start, end - start));
+        }
+        skipField(end);
+        return negative ? -value : value;
+    }
+
+    /**
+     * finds end of field starting at given index
+     *
+     * @param start field first byte
+     * @return index of delimiter, line break or buffer limit after field
+     */
+    private int fieldEnd(int start) {
+        int end = start;
+        while (end < buffer.limit() && !isFieldEnd(buffer.get(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private boolean isFieldEnd(byte current) {
+        return current == delimiter || current == '\n' || current == '\r';
+    }
+
+    /**
+     * moves to the start of next field, line break is left for endRecord
+     *
+     * @param end field end
+     */
+    private void skipField(int end) {
+        if (end < buffer.limit() && buffer.get(end) == delimiter) {
+            end++;
+        }
+        buffer.position(end);
+    }
+
+    private boolean matches(byte[] bytes, int start, int length) {
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * decodes UTF-8 bytes into string, array backed buffers are decoded in
+     * place
+     *
+     * @param start first byte
+     * @param length number of bytes
+     * @return decoded string
+     */
+    private String decode(int start, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+
+/**
+ * last modified time and size of a file, used to tell if a file changed since
+ * it was last read
+ *
+ * @author beshoy
+ */
+final class FileVersion {
+
+    private final FileTime lastModified;
+    private final long size;
+
+    private FileVersion(FileTime lastModified, long size) {
+        this.lastModified = lastModified;
+        this.size = size;
+    }
+
+    /**
+     * reads current version of a file
+     *
+     * @param file file to check
+     * @return version of file
+     * @throws IOException if file does not exist or can not be read
+     */
+    static FileVersion of(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new FileVersion(attributes.lastModifiedTime(), attributes.size());
+    }
+
+    /**
+     * creates version from values stored earlier
+     *
+     * @param lastModified last modified time of file
+     * @param size file size in bytes
+     * @return version of file
+     */
+    static FileVersion of(FileTime lastModified, long size) {
+        return new FileVersion(lastModified, size);
+    }
+
+    FileTime getLastModified() {
+        return lastModified;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FileVersion)) {
+            return false;
+        }
+        FileVersion other = (FileVersion) obj;
+        return size == other.size && lastModified.equals(other.lastModified);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lastModified, size);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.util.Arrays;
+
+/**
+ * map from int keys to non negative int values kept in two int arrays, keys
+ * are not boxed and entries are not objects. probing is done by IntKeyTable,
+ * NO_VALUE marks an empty slot
+ *
+ * @author beshoy
+ */
+class IntIntMap extends IntKeyTable<int[]> {
+
+    // returned when key is not in map, values are never negative
+    static final int NO_VALUE = -1;
+
+    IntIntMap() {
+        this(16);
+    }
+
+    IntIntMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * gets value of key
+     *
+     * @param key key to look for
+     * @return value or NO_VALUE if key is not in map
+     */
+    int get(int key) {
+        // empty slots hold NO_VALUE
+        return values[slotOf(key)];
+    }
+
+    /**
+     * puts value of key, replaces value of same key
+     *
+     * @param key key
+     * @param value value, must not be negative
+     * @return replaced value or NO_VALUE if key is new
+     */
+    int put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        int index = slotOf(key);
+        int previousValue = values[index];
+        keys[index] = key;
+        values[index] = value;
+        if (previousValue == NO_VALUE) {
+            entryAdded();
+        }
+        return previousValue;
+    }
+
+    /**
+     * removes key from map
+     *
+     * @param key key to remove
+     * @return removed value or NO_VALUE if key is not in map
+     */
+    int remove(int key) {
+        int index = slotOf(key);
+        int removedValue = values[index];
+        if (removedValue != NO_VALUE) {
+            removeSlot(index);
+        }
+        return removedValue;
+    }
+
+    /**
+     * @return bytes used by keys and values arrays
+     */
+    long arraysBytes() {
+        return 2L * Integer.BYTES * keys.length;
+    }
+
+    @Override
+    int[] newValues(int capacity) {
+        int[] emptyValues = new int[capacity];
+        Arrays.fill(emptyValues, NO_VALUE);
+        return emptyValues;
+    }
+
+    @Override
+    boolean isEmpty(int[] slotValues, int index) {
+        return slotValues[index] == NO_VALUE;
+    }
+
+    @Override
+    void copyValue(int[] fromValues, int fromIndex, int[] toValues, int toIndex) {
+        toValues[toIndex] = fromValues[fromIndex];
+    }
+
+    @Override
+    void emptySlot(int[] slotValues, int index) {
+        slotValues[index] = NO_VALUE;
+    }
+}
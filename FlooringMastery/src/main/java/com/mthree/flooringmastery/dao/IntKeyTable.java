@@ -0,0 +1,147 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+/**
+ * int keys of an open addressing table with linear probing, shared by int
+ * keyed maps. values are kept by the map in an array of type A at the same
+ * index as their key, an empty value marks an empty slot. removed entries are
+ * filled by shifting back the entries after them
+ *
+ * @author beshoy
+ * @param <A> type of values array
+ */
+abstract class IntKeyTable<A> {
+
+    int[] keys;
+    A values;
+    int size;
+
+    IntKeyTable(int expectedSize) {
+        int capacity = capacityFor(expectedSize);
+        keys = new int[capacity];
+        values = newValues(capacity);
+    }
+
+    /**
+     * creates values array with every slot empty
+     *
+     * @param capacity array length
+     * @return new values array
+     */
+    abstract A newValues(int capacity);
+
+    /**
+     * @return true if slot has no value
+     */
+    abstract boolean isEmpty(A slotValues, int index);
+
+    /**
+     * copies value of one slot into a slot of same or another values array
+     */
+    abstract void copyValue(A fromValues, int fromIndex, A toValues, int toIndex);
+
+    /**
+     * empties slot of values array
+     */
+    abstract void emptySlot(A slotValues, int index);
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        values = newValues(keys.length);
+        size = 0;
+    }
+
+    /**
+     * finds slot of key
+     *
+     * @param key key to look for
+     * @return index of key, or of empty slot key would be put in
+     */
+    final int slotOf(int key) {
+        int mask = keys.length - 1;
+        int index = indexOf(key, mask);
+        while (!isEmpty(values, index) && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * counts entry just put into an empty slot, table is kept at most half
+     * full so probes stay short
+     */
+    final void entryAdded() {
+        if (++size > keys.length / 2) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * removes entry of a slot, later entries of the same probe run are moved
+     * back so lookups do not stop at the empty slot
+     *
+     * @param emptyIndex slot of removed entry
+     */
+    final void removeSlot(int emptyIndex) {
+        int mask = keys.length - 1;
+        int index = emptyIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            if (isEmpty(values, index)) {
+                break;
+            }
+            int homeIndex = indexOf(keys[index], mask);
+            // entry can move only if its home slot is not between empty slot and where it is
+            boolean canMove = emptyIndex <= index
+                    ? homeIndex <= emptyIndex || homeIndex > index
+                    : homeIndex <= emptyIndex && homeIndex > index;
+            if (canMove) {
+                keys[emptyIndex] = keys[index];
+                copyValue(values, index, values, emptyIndex);
+                emptyIndex = index;
+            }
+        }
+        emptySlot(values, emptyIndex);
+        size--;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        A oldValues = values;
+        keys = new int[capacity];
+        values = newValues(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!isEmpty(oldValues, i)) {
+                int index = indexOf(oldKeys[i], mask);
+                while (!isEmpty(values, index)) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                copyValue(oldValues, i, values, index);
+            }
+        }
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity / 2 < expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    /**
+     * home slot of key, order numbers are mostly consecutive so bits are mixed
+     * first to spread them
+     */
+    private static int indexOf(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * map from int keys to objects kept in an int array and an object array, keys
+ * are not boxed and entries are not objects. probing is done by IntKeyTable
+ * like IntIntMap, null marks an empty slot so values must not be null
+ *
+ * @author beshoy
+ * @param <V> type of values
+ */
+class IntObjectMap<V> extends IntKeyTable<Object[]> {
+
+    IntObjectMap() {
+        this(16);
+    }
+
+    IntObjectMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * gets value of key
+     *
+     * @param key key to look for
+     * @return value or null if key is not in map
+     */
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        // empty slots hold null
+        return (V) values[slotOf(key)];
+    }
+
+    /**
+     * puts value of key, replaces value of same key
+     *
+     * @param key key
+     * @param value value, must not be null
+     * @return replaced value or null if key is new
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value must not be null");
+        }
+        int index = slotOf(key);
+        V previousValue = (V) values[index];
+        keys[index] = key;
+        values[index] = value;
+        if (previousValue == null) {
+            entryAdded();
+        }
+        return previousValue;
+    }
+
+    /**
+     * removes key from map
+     *
+     * @param key key to remove
+     * @return removed value or null if key is not in map
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int index = slotOf(key);
+        V removedValue = (V) values[index];
+        if (removedValue != null) {
+            removeSlot(index);
+        }
+        return removedValue;
+    }
+
+    /**
+     * copies values into a new list
+     *
+     * @return values in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    List<V> values() {
+        List<V> valuesList = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                valuesList.add((V) value);
+            }
+        }
+        return valuesList;
+    }
+
+    @Override
+    Object[] newValues(int capacity) {
+        return new Object[capacity];
+    }
+
+    @Override
+    boolean isEmpty(Object[] slotValues, int index) {
+        return slotValues[index] == null;
+    }
+
+    @Override
+    void copyValue(Object[] fromValues, int fromIndex, Object[] toValues, int toIndex) {
+        toValues[toIndex] = fromValues[fromIndex];
+    }
+
+    @Override
+    void emptySlot(Object[] slotValues, int index) {
+        slotValues[index] = null;
+    }
+}
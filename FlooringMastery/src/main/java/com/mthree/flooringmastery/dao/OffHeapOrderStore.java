@@ -0,0 +1,274 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Money;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.State;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * orders kept outside the java heap in direct byte buffers. each order takes
+ * one fixed size slot, customer names are appended to separate names buffers
+ * and the slot keeps where its name is. state and product are ids into an
+ * OrderDictionary and money amounts are cents, like CompactOrder
+ *
+ * @author beshoy
+ */
+class OffHeapOrderStore {
+
+    // slot layout, offsets in bytes
+    private static final int ORDER_NUMBER = 0;
+    private static final int EPOCH_DAY = 4;
+    private static final int STATE_ID = 8;
+    private static final int PRODUCT_ID = 10;
+    private static final int AREA_SCALE = 12;
+    private static final int AREA_UNSCALED = 16;
+    private static final int MATERIAL_COST = 24;
+    private static final int LABOR_COST = 32;
+    private static final int TAX = 40;
+    private static final int TOTAL = 48;
+    // names buffer index in high 32 bits, position in buffer in low 32 bits
+    private static final int NAME_POSITION = 56;
+    // -1 for orders without customer name, for uncompacted orders and for free slots
+    private static final int NAME_LENGTH = 64;
+    // 1 if order is kept on heap because it can not be kept in slot fields
+    private static final int UNCOMPACTED = 68;
+    static final int SLOT_BYTES = 72;
+
+    static final int NAMES_BUFFER_BYTES = 1 << 20;
+
+    private final int slotsPerBuffer;
+    private final OrderDictionary dictionary = new OrderDictionary();
+    private final List<ByteBuffer> slotBuffers = new ArrayList<>();
+    private final List<ByteBuffer> namesBuffers = new ArrayList<>();
+    // slots of removed orders, used again before new slots
+    private int[] freeSlots = new int[16];
+    private int freeSlotsCount;
+    // slots handed out so far, free or not
+    private int slotsCount;
+    // name bytes of live orders and of removed orders, names are copied into new buffers
+    // once removed bytes are at least one names buffer and more than live bytes
+    private long usedNameBytes;
+    private long unusedNameBytes;
+    private final IntObjectMap<Order> uncompactedOrders = new IntObjectMap<>();
+
+    OffHeapOrderStore(int slotsPerBuffer) {
+        this.slotsPerBuffer = slotsPerBuffer;
+    }
+
+    /**
+     * writes order into a free slot
+     *
+     * @param order order to keep
+     * @return slot of order
+     */
+    int add(Order order) {
+        int slot = allocateSlot();
+        ByteBuffer buffer = slotBuffer(slot);
+        int base = slotBase(slot);
+        buffer.putInt(base + ORDER_NUMBER, order.getOrderNumber());
+        buffer.putInt(base + EPOCH_DAY, (int) order.getOrderDate().toEpochDay());
+        int stateId = -1;
+        int productId = -1;
+        if (CompactOrder.canCompact(order)) {
+            stateId = dictionary.stateId(order.getState(), order.getTaxRate());
+            productId = dictionary.productId(order.getProductType(), order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot());
+        }
+        if (stateId < 0 || productId < 0) {
+            buffer.putInt(base + UNCOMPACTED, 1);
+            buffer.putInt(base + NAME_LENGTH, -1);
+            uncompactedOrders.put(order.getOrderNumber(), order);
+            return slot;
+        }
+        buffer.putInt(base + UNCOMPACTED, 0);
+        buffer.putShort(base + STATE_ID, (short) stateId);
+        buffer.putShort(base + PRODUCT_ID, (short) productId);
+        buffer.putInt(base + AREA_SCALE, order.getArea().scale());
+        buffer.putLong(base + AREA_UNSCALED, order.getArea().unscaledValue().longValue());
+        buffer.putLong(base + MATERIAL_COST, Money.toCents(order.getMaterialCost()));
+        buffer.putLong(base + LABOR_COST, Money.toCents(order.getLaborCost()));
+        buffer.putLong(base + TAX, Money.toCents(order.getTax()));
+        buffer.putLong(base + TOTAL, Money.toCents(order.getTotal()));
+        writeName(buffer, base, order.getCustomerName());
+        return slot;
+    }
+
+    /**
+     * creates order object from a slot
+     *
+     * @param slot slot of order
+     * @return new Order object, or the kept order if it was not compacted
+     */
+    Order read(int slot) {
+        ByteBuffer buffer = slotBuffer(slot);
+        int base = slotBase(slot);
+        if (buffer.getInt(base + UNCOMPACTED) == 1) {
+            return uncompactedOrders.get(buffer.getInt(base + ORDER_NUMBER));
+        }
+        State state = dictionary.getState(buffer.getShort(base + STATE_ID));
+        Product product = dictionary.getProduct(buffer.getShort(base + PRODUCT_ID));
+        return new Order(LocalDate.ofEpochDay(buffer.getInt(base + EPOCH_DAY)), buffer.getInt(base + ORDER_NUMBER),
+                readName(buffer, base), state.getStateAbbreviation(), state.getTaxRate(), product.getProductType(),
+                BigDecimal.valueOf(buffer.getLong(base + AREA_UNSCALED), buffer.getInt(base + AREA_SCALE)),
+                product.getCostPerSquareFoot(), product.getLaborCostPerSquareFoot(),
+                Money.toBigDecimal(buffer.getLong(base + MATERIAL_COST)), Money.toBigDecimal(buffer.getLong(base + LABOR_COST)),
+                Money.toBigDecimal(buffer.getLong(base + TAX)), Money.toBigDecimal(buffer.getLong(base + TOTAL)));
+    }
+
+    int getOrderNumber(int slot) {
+        return slotBuffer(slot).getInt(slotBase(slot) + ORDER_NUMBER);
+    }
+
+    LocalDate getOrderDate(int slot) {
+        return LocalDate.ofEpochDay(slotBuffer(slot).getInt(slotBase(slot) + EPOCH_DAY));
+    }
+
+    /**
+     * gives slot back so a later order can use it
+     *
+     * @param slot slot of removed order
+     */
+    void free(int slot) {
+        ByteBuffer buffer = slotBuffer(slot);
+        int base = slotBase(slot);
+        if (buffer.getInt(base + UNCOMPACTED) == 1) {
+            uncompactedOrders.remove(buffer.getInt(base + ORDER_NUMBER));
+        } else {
+            int nameLength = Math.max(0, buffer.getInt(base + NAME_LENGTH));
+            usedNameBytes -= nameLength;
+            unusedNameBytes += nameLength;
+        }
+        // free slot has no name to keep when names are compacted
+        buffer.putInt(base + NAME_LENGTH, -1);
+        if (freeSlotsCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotsCount++] = slot;
+        if (unusedNameBytes >= NAMES_BUFFER_BYTES && unusedNameBytes > usedNameBytes) {
+            compactNames();
+        }
+    }
+
+    /**
+     * drops all orders, buffers are released when garbage collector frees
+     * them
+     */
+    void clear() {
+        slotBuffers.clear();
+        namesBuffers.clear();
+        dictionary.clear();
+        uncompactedOrders.clear();
+        freeSlots = new int[16];
+        freeSlotsCount = 0;
+        slotsCount = 0;
+        usedNameBytes = 0;
+        unusedNameBytes = 0;
+    }
+
+    /**
+     * @return bytes of direct buffers held by store
+     */
+    long offHeapBytes() {
+        long bytes = (long) slotBuffers.size() * slotsPerBuffer * SLOT_BYTES;
+        for (ByteBuffer namesBuffer : namesBuffers) {
+            bytes += namesBuffer.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return name bytes left behind by removed or replaced orders since
+     * names were last compacted
+     */
+    long unusedNameBytes() {
+        return unusedNameBytes;
+    }
+
+    private int allocateSlot() {
+        if (freeSlotsCount > 0) {
+            return freeSlots[--freeSlotsCount];
+        }
+        if (slotsCount == (long) slotBuffers.size() * slotsPerBuffer) {
+            slotBuffers.add(ByteBuffer.allocateDirect(slotsPerBuffer * SLOT_BYTES));
+        }
+        return slotsCount++;
+    }
+
+    private ByteBuffer slotBuffer(int slot) {
+        return slotBuffers.get(slot / slotsPerBuffer);
+    }
+
+    private int slotBase(int slot) {
+        return (slot % slotsPerBuffer) * SLOT_BYTES;
+    }
+
+    private void writeName(ByteBuffer slotBuffer, int base, String customerName) {
+        if (customerName == null) {
+            slotBuffer.putInt(base + NAME_LENGTH, -1);
+            return;
+        }
+        byte[] nameBytes = customerName.getBytes(StandardCharsets.UTF_8);
+        slotBuffer.putLong(base + NAME_POSITION, appendName(nameBytes));
+        slotBuffer.putInt(base + NAME_LENGTH, nameBytes.length);
+        usedNameBytes += nameBytes.length;
+    }
+
+    /**
+     * appends name to last names buffer, starts a new buffer when it does not
+     * fit, a name is never split between two buffers
+     *
+     * @return names buffer index in high 32 bits, position in low 32 bits
+     */
+    private long appendName(byte[] nameBytes) {
+        ByteBuffer namesBuffer = namesBuffers.isEmpty() ? null : namesBuffers.get(namesBuffers.size() - 1);
+        if (namesBuffer == null || namesBuffer.remaining() < nameBytes.length) {
+            namesBuffer = ByteBuffer.allocateDirect(Math.max(NAMES_BUFFER_BYTES, nameBytes.length));
+            namesBuffers.add(namesBuffer);
+        }
+        long namePosition = ((long) (namesBuffers.size() - 1) << 32) | namesBuffer.position();
+        namesBuffer.put(nameBytes);
+        return namePosition;
+    }
+
+    /**
+     * copies names of live orders into new names buffers so bytes of removed
+     * and replaced orders are given back, old buffers are released when
+     * garbage collector frees them
+     */
+    private void compactNames() {
+        List<ByteBuffer> oldNamesBuffers = new ArrayList<>(namesBuffers);
+        namesBuffers.clear();
+        for (int slot = 0; slot < slotsCount; slot++) {
+            ByteBuffer slotBuffer = slotBuffer(slot);
+            int base = slotBase(slot);
+            int nameLength = slotBuffer.getInt(base + NAME_LENGTH);
+            if (nameLength >= 0) {
+                long namePosition = slotBuffer.getLong(base + NAME_POSITION);
+                byte[] nameBytes = new byte[nameLength];
+                oldNamesBuffers.get((int) (namePosition >>> 32)).get((int) namePosition, nameBytes);
+                slotBuffer.putLong(base + NAME_POSITION, appendName(nameBytes));
+            }
+        }
+        unusedNameBytes = 0;
+    }
+
+    private String readName(ByteBuffer slotBuffer, int base) {
+        int nameLength = slotBuffer.getInt(base + NAME_LENGTH);
+        if (nameLength < 0) {
+            return null;
+        }
+        long namePosition = slotBuffer.getLong(base + NAME_POSITION);
+        byte[] nameBytes = new byte[nameLength];
+        namesBuffers.get((int) (namePosition >>> 32)).get((int) namePosition, nameBytes);
+        return new String(nameBytes, StandardCharsets.UTF_8);
+    }
+}
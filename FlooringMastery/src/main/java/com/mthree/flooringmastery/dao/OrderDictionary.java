@@ -0,0 +1,92 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.State;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * states and products found in orders, each one kept once and referred to by
+ * a small id. orders keep the tax rate and costs they were priced with, so an
+ * entry is a state code with a tax rate or a product type with its costs, not
+ * the current reference data
+ *
+ * @author beshoy
+ */
+class OrderDictionary {
+
+    // ids have to fit a short in compact orders
+    static final int MAX_ENTRIES = Short.MAX_VALUE;
+
+    private final List<State> states = new ArrayList<>();
+    private final Map<String, Integer> stateIds = new HashMap<>();
+    private final List<Product> products = new ArrayList<>();
+    private final Map<String, Integer> productIds = new HashMap<>();
+
+    /**
+     * gets id of state and tax rate pair, adds it when it is new
+     *
+     * @param stateAbbreviation order state
+     * @param taxRate order tax rate
+     * @return id or -1 if dictionary is full
+     */
+    int stateId(String stateAbbreviation, BigDecimal taxRate) {
+        String key = stateAbbreviation + "," + taxRate;
+        Integer id = stateIds.get(key);
+        if (id == null) {
+            if (states.size() == MAX_ENTRIES) {
+                return -1;
+            }
+            id = states.size();
+            states.add(new State(stateAbbreviation, null, taxRate));
+            stateIds.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * gets id of product and costs, adds it when it is new
+     *
+     * @param productType order product type
+     * @param costPerSquareFoot order cost per square foot
+     * @param laborCostPerSquareFoot order labor cost per square foot
+     * @return id or -1 if dictionary is full
+     */
+    int productId(String productType, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot) {
+        String key = productType + "," + costPerSquareFoot + "," + laborCostPerSquareFoot;
+        Integer id = productIds.get(key);
+        if (id == null) {
+            if (products.size() == MAX_ENTRIES) {
+                return -1;
+            }
+            id = products.size();
+            products.add(new Product(productType, costPerSquareFoot, laborCostPerSquareFoot));
+            productIds.put(key, id);
+        }
+        return id;
+    }
+
+    State getState(int stateId) {
+        return states.get(stateId);
+    }
+
+    Product getProduct(int productId) {
+        return products.get(productId);
+    }
+
+    /**
+     * forgets all entries, only safe when no compact order uses them
+     */
+    void clear() {
+        states.clear();
+        stateIds.clear();
+        products.clear();
+        productIds.clear();
+    }
+}
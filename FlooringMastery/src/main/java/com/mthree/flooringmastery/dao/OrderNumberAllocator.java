@@ -0,0 +1,39 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+/**
+ * collection of methods to hand out new order numbers, a number is never given
+ * twice even after its order is removed
+ *
+ * @author beshoy
+ */
+public interface OrderNumberAllocator {
+
+    /**
+     * sets counter to the highest of last order number and last number handed
+     * out before, called once orders are loaded
+     *
+     * @param lastOrderNumber highest order number in loaded orders
+     * @throws DataPersistenceException
+     */
+    public void seed(int lastOrderNumber) throws DataPersistenceException;
+
+    /**
+     * hands out next order number, number is saved before it is handed out so
+     * it is not given again after restart
+     *
+     * @return new order number
+     * @throws DataPersistenceException if number could not be saved
+     */
+    public int nextOrderNumber() throws DataPersistenceException;
+
+    /**
+     * saves last number handed out if it was not saved yet
+     *
+     * @throws DataPersistenceException
+     */
+    public void saveOrderNumber() throws DataPersistenceException;
+
+}
@@ -0,0 +1,120 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * implements OrderNumberAllocator using an atomic counter. numbers are
+ * reserved in blocks and the end of the reserved block is written to a text
+ * file before any number in it is handed out, so a crash can only skip numbers
+ * and never gives a number again
+ *
+ * @author beshoy
+ */
+public class OrderNumberAllocatorFileImpl implements OrderNumberAllocator {
+
+    // file holding highest reserved number, null keeps counter in memory only
+    private String orderNumberFile;
+    // numbers reserved each time the file is written, 1 writes it for every number
+    private int reserveBlock = 1;
+    private final AtomicInteger lastOrderNumber = new AtomicInteger();
+    // highest number saved to file, numbers up to it are handed out without writing the file,
+    // never reached when counter is kept in memory only
+    private volatile int reservedOrderNumber = Integer.MAX_VALUE;
+
+    public OrderNumberAllocatorFileImpl() {
+    }
+
+    public OrderNumberAllocatorFileImpl(String orderNumberFile) {
+        this.orderNumberFile = orderNumberFile;
+        this.reservedOrderNumber = 0;
+    }
+
+    public OrderNumberAllocatorFileImpl(String orderNumberFile, int reserveBlock) {
+        this(orderNumberFile);
+        this.reserveBlock = reserveBlock;
+    }
+
+    @Override
+    public void seed(int lastOrderNumber) throws DataPersistenceException {
+        int savedOrderNumber = readOrderNumber();
+        // numbers of removed orders may be higher than any order left in files
+        this.lastOrderNumber.set(Math.max(lastOrderNumber, savedOrderNumber));
+        if (orderNumberFile != null) {
+            reservedOrderNumber = savedOrderNumber;
+        }
+    }
+
+    @Override
+    public int nextOrderNumber() throws DataPersistenceException {
+        int orderNumber = lastOrderNumber.incrementAndGet();
+        if (orderNumber > reservedOrderNumber) {
+            reserve(orderNumber);
+        }
+        return orderNumber;
+    }
+
+    @Override
+    public void saveOrderNumber() throws DataPersistenceException {
+        // numbers are saved as they are reserved, this only catches up after a failed reserve
+        if (orderNumberFile != null && lastOrderNumber.get() > reservedOrderNumber) {
+            reserve(lastOrderNumber.get());
+        }
+    }
+
+    /**
+     * saves end of a new block of numbers that holds the given number, blocks
+     * are reserved one at a time
+     *
+     * @param orderNumber number about to be handed out
+     * @throws DataPersistenceException
+     */
+    private synchronized void reserve(int orderNumber) throws DataPersistenceException {
+        if (orderNumber <= reservedOrderNumber) {
+            // another caller reserved a block holding this number
+            return;
+        }
+        int blockEnd = (int) Math.min(Integer.MAX_VALUE, (long) orderNumber + reserveBlock - 1);
+        Path filePath = Paths.get(orderNumberFile);
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try {
+            // file is replaced only once it is fully written and synced
+            try ( FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(String.valueOf(blockEnd).getBytes(StandardCharsets.UTF_8)));
+                channel.force(true);
+            }
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new DataPersistenceException("Could not save last order number.", e);
+        }
+        reservedOrderNumber = blockEnd;
+    }
+
+    /**
+     * reads highest number reserved before
+     *
+     * @return last saved order number, 0 if none was saved
+     * @throws DataPersistenceException
+     */
+    private int readOrderNumber() throws DataPersistenceException {
+        if (orderNumberFile == null || !Files.exists(Paths.get(orderNumberFile))) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(Files.readString(Paths.get(orderNumberFile), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            throw new DataPersistenceException("Could not read last order number.", e);
+        }
+    }
+}
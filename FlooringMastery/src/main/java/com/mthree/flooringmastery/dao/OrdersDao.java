@@ -7,6 +7,7 @@ import com.mthree.flooringmastery.dto.Order;
 import com.mthree.flooringmastery.service.NoOrderFoundException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * collection of methods to handle and manipulate orders data
@@ -53,7 +54,7 @@ public interface OrdersDao {
      * gets list of orders for chosen date
      *
      * @param orderDate orders date
-     * @return list of orders for that date
+     * @return list of orders for that date sorted by order number
      * @throws DataPersistenceException
      */
     public List<Order> getAllOrders(LocalDate orderDate) throws DataPersistenceException;
@@ -66,6 +67,40 @@ public interface OrdersDao {
      */
     public List<Order> getAllOrders() throws DataPersistenceException;
 
+    /**
+     * gets highest order number of all orders without building the list of
+     * all orders
+     *
+     * @return highest order number, 0 if there are no orders
+     * @throws DataPersistenceException
+     */
+    public int getLastOrderNumber() throws DataPersistenceException;
+
+    /**
+     * gets list of orders of all dates in a range, only dates in the range are
+     * read
+     *
+     * @param fromDate first date
+     * @param toDate last date, included
+     * @return orders sorted by date then order number, empty if from date is
+     * after to date
+     * @throws DataPersistenceException
+     */
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException;
+
+    /**
+     * streams orders of all dates in a range one date at a time, so a long
+     * range does not have to fit in one list. stream should be used up before
+     * orders are changed, orders read from files while stream is used fail
+     * with IllegalStateException caused by DataPersistenceException
+     *
+     * @param fromDate first date
+     * @param toDate last date, included
+     * @return orders sorted by date then order number
+     * @throws DataPersistenceException
+     */
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException;
+
     /**
      * adds order to orders list
      *
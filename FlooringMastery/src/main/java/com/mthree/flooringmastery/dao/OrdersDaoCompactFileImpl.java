@@ -0,0 +1,258 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * implements OrdersDao keeping all orders in memory in compact form. orders of
+ * the same state and product share one copy of their codes and rates, money
+ * amounts are kept as cents and Order objects are created when orders are read
+ *
+ * @author beshoy
+ */
+public class OrdersDaoCompactFileImpl implements OrdersDao {
+
+    private OrdersFileFormat ordersFormat;
+    private String backupFile;
+    private OrderDictionary dictionary = new OrderDictionary();
+    private IntObjectMap<CompactOrder> orders = new IntObjectMap<>();
+    // orders grouped by date and sorted by order number, kept in sync with orders map
+    private NavigableMap<LocalDate, DateOrders> ordersByDate = new TreeMap<>();
+    // dates of orders files that have changed since last load or save
+    private Set<LocalDate> dirtyDates = new HashSet<>();
+
+    public OrdersDaoCompactFileImpl() {
+    }
+
+    public OrdersDaoCompactFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader) {
+        this.ordersFormat = new OrdersFileFormat(ordersFile, delimiter, ordersHeader);
+        this.backupFile = backupFile;
+    }
+
+    @Override
+    public void loadOrders() throws DataPersistenceException {
+        orders.clear();
+        ordersByDate.clear();
+        dirtyDates.clear();
+        // no order uses old entries after orders are cleared
+        dictionary.clear();
+        List<Path> filePaths = ordersFormat.getOrdersFilePaths();
+        for (Path filePath : filePaths) {
+            // file orders are compacted one file at a time so only one file of Order objects is in memory
+            for (Order order : ordersFormat.readOrdersFile(filePath)) {
+                putOrder(order);
+            }
+        }
+        Logger.getLogger(OrdersDaoCompactFileImpl.class.getName()).log(Level.FINE,
+                "loaded {0} orders from {1} files", new Object[]{orders.size(), filePaths.size()});
+    }
+
+    @Override
+    public void saveOrders() throws DataPersistenceException {
+        // rewrite each changed date file or delete it when it has no orders left
+        for (LocalDate orderDate : new ArrayList<>(dirtyDates)) {
+            ordersFormat.writeOrdersFile(orderDate, toOrders(ordersByDate.get(orderDate)));
+            dirtyDates.remove(orderDate);
+        }
+    }
+
+    @Override
+    public Order getOrder(LocalDate date, int orderNumber) throws DataPersistenceException, NoOrderFoundException {
+        CompactOrder order = orders.get(orderNumber);
+        if (order == null || !order.getOrderDate().equals(date)) {
+            throw new NoOrderFoundException("No order found for the given date or number");
+        }
+        return order.toOrder(dictionary);
+    }
+
+    @Override
+    public Order removeOrder(Order order) throws DataPersistenceException {
+        CompactOrder removedOrder = orders.remove(order.getOrderNumber());
+        if (removedOrder == null) {
+            return null;
+        }
+        unindexOrder(removedOrder);
+        // date file has to be rewritten without the removed order
+        dirtyDates.add(removedOrder.getOrderDate());
+        return removedOrder.toOrder(dictionary);
+    }
+
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws DataPersistenceException {
+        return toOrders(ordersByDate.get(orderDate));
+    }
+
+    @Override
+    public List<Order> getAllOrders() throws DataPersistenceException {
+        List<Order> allOrders = new ArrayList<>(orders.size());
+        for (DateOrders dateOrders : ordersByDate.values()) {
+            allOrders.addAll(toOrders(dateOrders));
+        }
+        return allOrders;
+    }
+
+    @Override
+    public int getLastOrderNumber() throws DataPersistenceException {
+        int lastOrderNumber = 0;
+        for (DateOrders dateOrders : ordersByDate.values()) {
+            lastOrderNumber = Math.max(lastOrderNumber, dateOrders.getLastOrderNumber());
+        }
+        return lastOrderNumber;
+    }
+
+    @Override
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return streamOrders(fromDate, toDate).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        if (fromDate.isAfter(toDate)) {
+            return Stream.empty();
+        }
+        // Order objects are created as the stream is used
+        return ordersByDate.subMap(fromDate, true, toDate, true).values().stream()
+                .flatMap((dateOrders) -> dateOrders.orders.stream())
+                .map((compactOrder) -> compactOrder.toOrder(dictionary));
+    }
+
+    @Override
+    public void saveOrder(Order order) throws DataPersistenceException {
+        CompactOrder previousOrder = putOrder(order);
+        // mark both old and new order date as changed in case order moved to another date
+        if (previousOrder != null) {
+            dirtyDates.add(previousOrder.getOrderDate());
+        }
+        dirtyDates.add(order.getOrderDate());
+    }
+
+    @Override
+    public void exportAllOrders() throws DataPersistenceException {
+        // orders are created one date at a time while writing
+        ordersFormat.exportOrders(backupFile, ordersByDate.keySet(), this::getAllOrders);
+    }
+
+    /**
+     * compacts order and puts it into orders map and date index, replaces order
+     * with same order number
+     *
+     * @param order order to put
+     * @return replaced order or null if order number is new
+     */
+    private CompactOrder putOrder(Order order) {
+        CompactOrder compactOrder = CompactOrder.of(order, dictionary);
+        CompactOrder previousOrder = orders.put(compactOrder.getOrderNumber(), compactOrder);
+        if (previousOrder != null) {
+            unindexOrder(previousOrder);
+        }
+        ordersByDate.computeIfAbsent(order.getOrderDate(), (orderDate) -> new DateOrders()).put(compactOrder);
+        return previousOrder;
+    }
+
+    /**
+     * removes order from date index, drops the date when it has no orders left
+     *
+     * @param order order to remove from index
+     */
+    private void unindexOrder(CompactOrder order) {
+        LocalDate orderDate = order.getOrderDate();
+        DateOrders dateOrders = ordersByDate.get(orderDate);
+        if (dateOrders != null) {
+            dateOrders.remove(order.getOrderNumber());
+            if (dateOrders.isEmpty()) {
+                ordersByDate.remove(orderDate);
+            }
+        }
+    }
+
+    /**
+     * creates Order objects of compact orders
+     *
+     * @param compactOrders orders of a date, may be null
+     * @return orders sorted by order number
+     */
+    private List<Order> toOrders(DateOrders compactOrders) {
+        if (compactOrders == null) {
+            return new ArrayList<>();
+        }
+        List<Order> dateOrders = new ArrayList<>(compactOrders.orders.size());
+        for (CompactOrder compactOrder : compactOrders.orders) {
+            dateOrders.add(compactOrder.toOrder(dictionary));
+        }
+        return dateOrders;
+    }
+
+    /**
+     * orders of one date in a list sorted by order number, takes less memory
+     * than a sorted map entry per order. new orders get the highest number so
+     * they are added at the end
+     */
+    private static class DateOrders {
+
+        private final List<CompactOrder> orders = new ArrayList<>();
+
+        private void put(CompactOrder order) {
+            int index = indexOf(order.getOrderNumber());
+            if (index >= 0) {
+                orders.set(index, order);
+            } else {
+                orders.add(-index - 1, order);
+            }
+        }
+
+        private void remove(int orderNumber) {
+            int index = indexOf(orderNumber);
+            if (index >= 0) {
+                orders.remove(index);
+            }
+        }
+
+        private boolean isEmpty() {
+            return orders.isEmpty();
+        }
+
+        /**
+         * @return number of last order, 0 when date has no orders
+         */
+        private int getLastOrderNumber() {
+            return orders.isEmpty() ? 0 : orders.get(orders.size() - 1).getOrderNumber();
+        }
+
+        /**
+         * finds order by binary search
+         *
+         * @return index of order, or -(insertion point) - 1 when not found
+         */
+        private int indexOf(int orderNumber) {
+            int low = 0;
+            int high = orders.size() - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleNumber = orders.get(middle).getOrderNumber();
+                if (middleNumber < orderNumber) {
+                    low = middle + 1;
+                } else if (middleNumber > orderNumber) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
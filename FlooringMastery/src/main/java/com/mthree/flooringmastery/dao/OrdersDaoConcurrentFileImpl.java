@@ -0,0 +1,259 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * implements OrdersDao that can be used by many threads at once. orders are
+ * kept in a concurrent map, orders of each date and its orders file are
+ * guarded by one of a fixed number of read write locks picked by date, so
+ * threads working on different dates rarely wait for each other
+ *
+ * @author beshoy
+ */
+public class OrdersDaoConcurrentFileImpl implements OrdersDao {
+
+    private OrdersFileFormat ordersFormat;
+    private String backupFile;
+    private Map<Integer, Order> orders = new ConcurrentHashMap<>();
+    // orders grouped by date then order number, each date map is guarded by its date lock,
+    // dates are sorted so a range of dates is one sub map
+    private ConcurrentNavigableMap<LocalDate, SortedMap<Integer, Order>> ordersByDate = new ConcurrentSkipListMap<>();
+    // dates of orders files that have changed since last load or save
+    private Set<LocalDate> dirtyDates = ConcurrentHashMap.newKeySet();
+    private ReadWriteLock[] dateLocks;
+
+    public OrdersDaoConcurrentFileImpl() {
+    }
+
+    public OrdersDaoConcurrentFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader, int lockStripes) {
+        this.ordersFormat = new OrdersFileFormat(ordersFile, delimiter, ordersHeader);
+        this.backupFile = backupFile;
+        this.dateLocks = new ReadWriteLock[Math.max(1, lockStripes)];
+        for (int i = 0; i < dateLocks.length; i++) {
+            dateLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public void loadOrders() throws DataPersistenceException {
+        List<Path> filePaths = ordersFormat.getOrdersFilePaths();
+        for (Path filePath : filePaths) {
+            LocalDate orderDate = ordersFormat.getOrderDate(filePath);
+            List<Order> fileOrders = ordersFormat.readOrdersFile(filePath);
+            lockDates(orderDate, orderDate);
+            try {
+                for (Order order : fileOrders) {
+                    orders.put(order.getOrderNumber(), order);
+                    ordersByDate.computeIfAbsent(orderDate, (date) -> new TreeMap<>())
+                            .put(order.getOrderNumber(), order);
+                }
+            } finally {
+                unlockDates(orderDate, orderDate);
+            }
+        }
+        dirtyDates.clear();
+    }
+
+    @Override
+    public void saveOrders() throws DataPersistenceException {
+        for (LocalDate orderDate : new ArrayList<>(dirtyDates)) {
+            // date stays locked while its file is written so file matches memory
+            lockDates(orderDate, orderDate);
+            try {
+                // another thread may have saved this date already
+                if (dirtyDates.remove(orderDate)) {
+                    SortedMap<Integer, Order> dateOrders = ordersByDate.getOrDefault(orderDate, Collections.emptySortedMap());
+                    try {
+                        ordersFormat.writeOrdersFile(orderDate, dateOrders.values());
+                    } catch (DataPersistenceException e) {
+                        dirtyDates.add(orderDate);
+                        throw e;
+                    }
+                }
+            } finally {
+                unlockDates(orderDate, orderDate);
+            }
+        }
+    }
+
+    @Override
+    public Order getOrder(LocalDate date, int orderNumber) throws DataPersistenceException, NoOrderFoundException {
+        Order order = orders.get(orderNumber);
+        if (order == null || order.getOrderDate().compareTo(date) != 0) {
+            throw new NoOrderFoundException("No order found for the given date or number");
+        }
+        return order;
+    }
+
+    @Override
+    public Order removeOrder(Order order) throws DataPersistenceException {
+        while (true) {
+            Order orderToRemove = orders.get(order.getOrderNumber());
+            if (orderToRemove == null) {
+                return null;
+            }
+            LocalDate orderDate = orderToRemove.getOrderDate();
+            lockDates(orderDate, orderDate);
+            try {
+                // order may have moved to another date before lock was taken
+                if (orders.remove(order.getOrderNumber(), orderToRemove)) {
+                    unindexOrder(orderToRemove);
+                    dirtyDates.add(orderDate);
+                    return orderToRemove;
+                }
+            } finally {
+                unlockDates(orderDate, orderDate);
+            }
+        }
+    }
+
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws DataPersistenceException {
+        return copyDateOrders(orderDate);
+    }
+
+    @Override
+    public List<Order> getAllOrders() throws DataPersistenceException {
+        return new ArrayList<>(orders.values());
+    }
+
+    @Override
+    public int getLastOrderNumber() throws DataPersistenceException {
+        return orders.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    @Override
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return streamOrders(fromDate, toDate).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        if (fromDate.isAfter(toDate)) {
+            return Stream.empty();
+        }
+        // each date is copied under its read lock when the stream gets to it,
+        // so only one date lock is held at a time and other threads can change other dates
+        return ordersByDate.subMap(fromDate, true, toDate, true).keySet().stream()
+                .flatMap((orderDate) -> copyDateOrders(orderDate).stream());
+    }
+
+    @Override
+    public void saveOrder(Order order) throws DataPersistenceException {
+        while (true) {
+            Order previousOrder = orders.get(order.getOrderNumber());
+            // order moving to another date needs both dates locked
+            LocalDate previousDate = previousOrder == null ? order.getOrderDate() : previousOrder.getOrderDate();
+            lockDates(previousDate, order.getOrderDate());
+            try {
+                // retry when order was changed by another thread before locks were taken
+                boolean replaced = previousOrder == null
+                        ? orders.putIfAbsent(order.getOrderNumber(), order) == null
+                        : orders.replace(order.getOrderNumber(), previousOrder, order);
+                if (replaced) {
+                    if (previousOrder != null) {
+                        unindexOrder(previousOrder);
+                        dirtyDates.add(previousDate);
+                    }
+                    ordersByDate.computeIfAbsent(order.getOrderDate(), (date) -> new TreeMap<>())
+                            .put(order.getOrderNumber(), order);
+                    dirtyDates.add(order.getOrderDate());
+                    return;
+                }
+            } finally {
+                unlockDates(previousDate, order.getOrderDate());
+            }
+        }
+    }
+
+    @Override
+    public void exportAllOrders() throws DataPersistenceException {
+        // each date is copied under its read lock so saves continue while exporting
+        ordersFormat.exportOrders(backupFile, ordersByDate.keySet(), this::copyDateOrders);
+    }
+
+    /**
+     * removes order from date index, drops the date when it has no orders
+     * left. date lock must be held
+     *
+     * @param order order to remove from index
+     */
+    private void unindexOrder(Order order) {
+        SortedMap<Integer, Order> dateOrders = ordersByDate.get(order.getOrderDate());
+        if (dateOrders != null) {
+            dateOrders.remove(order.getOrderNumber());
+            if (dateOrders.isEmpty()) {
+                ordersByDate.remove(order.getOrderDate());
+            }
+        }
+    }
+
+    /**
+     * copies orders of a date under its read lock
+     *
+     * @param orderDate orders date
+     * @return orders of date sorted by order number
+     */
+    private List<Order> copyDateOrders(LocalDate orderDate) {
+        ReadWriteLock dateLock = getDateLock(orderDate);
+        dateLock.readLock().lock();
+        try {
+            SortedMap<Integer, Order> dateOrders = ordersByDate.get(orderDate);
+            if (dateOrders == null) {
+                return new ArrayList<>();
+            }
+            return new ArrayList<>(dateOrders.values());
+        } finally {
+            dateLock.readLock().unlock();
+        }
+    }
+
+    private ReadWriteLock getDateLock(LocalDate orderDate) {
+        return dateLocks[Math.floorMod(orderDate.hashCode(), dateLocks.length)];
+    }
+
+    /**
+     * takes write locks of two dates, locks are always taken in the same order
+     * so two threads moving orders between the same dates do not deadlock
+     *
+     * @param firstDate first date to lock
+     * @param secondDate second date to lock, may be same as first date
+     */
+    private void lockDates(LocalDate firstDate, LocalDate secondDate) {
+        int firstStripe = Math.floorMod(firstDate.hashCode(), dateLocks.length);
+        int secondStripe = Math.floorMod(secondDate.hashCode(), dateLocks.length);
+        dateLocks[Math.min(firstStripe, secondStripe)].writeLock().lock();
+        if (firstStripe != secondStripe) {
+            dateLocks[Math.max(firstStripe, secondStripe)].writeLock().lock();
+        }
+    }
+
+    private void unlockDates(LocalDate firstDate, LocalDate secondDate) {
+        int firstStripe = Math.floorMod(firstDate.hashCode(), dateLocks.length);
+        int secondStripe = Math.floorMod(secondDate.hashCode(), dateLocks.length);
+        if (firstStripe != secondStripe) {
+            dateLocks[Math.max(firstStripe, secondStripe)].writeLock().unlock();
+        }
+        dateLocks[Math.min(firstStripe, secondStripe)].writeLock().unlock();
+    }
+}
@@ -5,23 +5,29 @@ package com.mthree.flooringmastery.dao;
 
 import com.mthree.flooringmastery.dto.Order;
 import com.mthree.flooringmastery.service.NoOrderFoundException;
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.math.BigDecimal;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -33,98 +39,109 @@ import java.util.stream.Stream;
  */
 public class OrdersDaoFileImpl implements OrdersDao {
 
-    private Map<Integer, Order> orders;
-    private String ordersFile;
+    // journal entry types
+    private static final String SAVED_ENTRY = "S";
+    private static final String REMOVED_ENTRY = "R";
+
+    // order number -> order, keys are not boxed
+    private IntObjectMap<Order> orders = new IntObjectMap<>();
+    private OrdersFileFormat ordersFormat;
     private String delimiter;
     private String backupFile;
     private String ordersHeader;
+    // number of threads used to read orders files, 1 reads files one by one
+    private int loadParallelism = 1;
+    // journal of changes made since last save, null when changes are kept in memory only
+    private OrdersJournal journal;
+    // binary copy of orders files read instead of files that did not change, null when not used
+    private OrdersSnapshot snapshot;
+    // orders grouped by date then order number, kept in sync with orders map
+    private NavigableMap<LocalDate, SortedMap<Integer, Order>> ordersByDate = new TreeMap<>();
+    // dates of orders files that have changed since last load or save
+    private Set<LocalDate> dirtyDates = new HashSet<>();
 
     public OrdersDaoFileImpl() {
     }
 
-    public OrdersDaoFileImpl(Map<Integer, Order> orders, String ordersFile, String delimiter, String backupFile, String ordersHeader) {
-        this.orders = orders;
-        this.ordersFile = ordersFile;
+    public OrdersDaoFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader) {
+        this.ordersFormat = new OrdersFileFormat(ordersFile, delimiter, ordersHeader);
         this.delimiter = delimiter;
         this.backupFile = backupFile;
         this.ordersHeader = ordersHeader;
     }
 
-    @Override
-    public void loadOrders() throws DataPersistenceException {
+    public OrdersDaoFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader, int loadParallelism) {
+        this(ordersFile, delimiter, backupFile, ordersHeader);
+        this.loadParallelism = loadParallelism;
+    }
 
-        // uses Stream Path to real all files inside a folder or path
-        try ( Stream<Path> paths = Files.walk(Paths.get(ordersFile))) {
-            // for each path or file found read the data
-            paths.forEach((filePath) -> {
-                if (Files.isRegularFile(filePath)) {
-                    Scanner scanner = null;
-                    try {
-                        // Create Scanner for reading the file
-                        scanner = new Scanner(
-                                new BufferedReader(
-                                        new FileReader(filePath.toString())));
-                    } catch (FileNotFoundException ex) {
-                        Logger.getLogger(OrdersDaoFileImpl.class.getName()).log(Level.SEVERE, null, ex);
-                    }
+    public OrdersDaoFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader, int loadParallelism, OrdersJournal journal) {
+        this(ordersFile, delimiter, backupFile, ordersHeader, loadParallelism);
+        this.journal = journal;
+    }
 
-                    // currentLine holds the most recent line read from the file
-                    String currentLine;
-                    // skip data header in file 
-                    scanner.nextLine();
-                    // holds the most recent state unmarshalled
-                    Order currentOrder;
-                    // Process while we have more lines in the file
-                    while (scanner.hasNextLine()) {
-                        // get the next line in the file
-                        currentLine = scanner.nextLine();
-                        // unmarshall the line into a product
-                        currentOrder = unmarshallOrder(currentLine);
-                        // SET ORDER DATE TO BE SAME DATE AS THE FILE NAME
-                        LocalDate orderDate = getOrderDateFromFileName(filePath.toString());
-                        currentOrder.setOrderDate(orderDate);
-                        // Put order into the map using order number as key
-                        orders.put(currentOrder.getOrderNumber(), currentOrder);
-                    }
-                    // close scanner
-                    scanner.close();
-                }
-            });
-        } catch (IOException ex) {
-            throw new DataPersistenceException("could not load orders files");
+    public OrdersDaoFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader, int loadParallelism, OrdersJournal journal, String snapshotFile) {
+        this(ordersFile, delimiter, backupFile, ordersHeader, loadParallelism, journal);
+        this.snapshot = new OrdersSnapshot(Paths.get(snapshotFile));
+    }
+
+    @Override
+    public void loadOrders() throws DataPersistenceException {
+        long startTime = System.nanoTime();
+        List<Path> filePaths = ordersFormat.getOrdersFilePaths();
+        // versions are taken before files are read so a file changed while loading is read again next time
+        Map<String, FileVersion> fileVersions = snapshot != null ? readFileVersions(filePaths) : new HashMap<>();
+        // orders of files that did not change since snapshot was written
+        Map<String, List<Order>> snapshotOrders = snapshot != null ? readSnapshot(fileVersions) : new HashMap<>();
+        List<Path> changedFiles = filePaths.stream()
+                .filter((filePath) -> !snapshotOrders.containsKey(filePath.getFileName().toString()))
+                .collect(Collectors.toList());
+        int threads = Math.max(1, Math.min(loadParallelism, changedFiles.size()));
+        Iterator<List<Order>> changedFilesOrders = readOrdersFiles(changedFiles, threads).iterator();
+        // orders of each file by file name, in the same order as files list
+        Map<String, List<Order>> filesOrders = new LinkedHashMap<>();
+        for (Path filePath : filePaths) {
+            String fileName = filePath.getFileName().toString();
+            filesOrders.put(fileName, snapshotOrders.containsKey(fileName) ? snapshotOrders.get(fileName) : changedFilesOrders.next());
+        }
+        // merge orders of all files into the map using order number as key and index it by date
+        int ordersCount = 0;
+        for (List<Order> fileOrders : filesOrders.values()) {
+            for (Order order : fileOrders) {
+                putOrder(order);
+            }
+            ordersCount += fileOrders.size();
+        }
+        // snapshot is only rewritten here when files changed since it was written, saving orders never writes it
+        if (snapshot != null && !changedFiles.isEmpty()) {
+            writeSnapshot(fileVersions, filesOrders);
         }
+        // orders in memory now match the files
+        dirtyDates.clear();
+        // apply changes that were not saved to files before program stopped
+        int replayedCount = replayJournal();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        Logger.getLogger(OrdersDaoFileImpl.class.getName()).log(Level.FINE,
+                "loaded {0} orders from {1} files, {2} of them from snapshot, and {3} journal entries in {4} ms using {5} threads",
+                new Object[]{ordersCount, filePaths.size(), snapshotOrders.size(), replayedCount, elapsedMillis, threads});
     }
 
     @Override
     public void saveOrders() throws DataPersistenceException {
-        // get list of dates on orders
-        List<LocalDate> allOrdersDates = getAllOrders().stream().map((order) -> order.getOrderDate()).collect(Collectors.toList());
-        // create new file for each date found and write date orders to it
-        allOrdersDates.forEach((orderDate) -> {
-            // create file name for order date
-            String fileDate = orderDate.format(DateTimeFormatter.ofPattern("MMddyyyy"));
-            // path to store file
-            String fileName = "Orders/Orders_" + fileDate + ".txt";
-            PrintWriter out = null;
-            File file = new File(fileName);
-            try {
-                out = new PrintWriter(new FileWriter(file));
-                // print header on fiel - print only once
-                out.println(ordersHeader);
-                // write each found order to the file
-                for (Order order : orders.values()) {
-                    // write to the file only if order made in same day as file name
-                    if (order.getOrderDate().compareTo(orderDate) == 0) {
-                        String orderAsText = marshallOrder(order);
-                        out.println(orderAsText);
-                        out.flush();
-                    }
-                }
-            } catch (IOException ex) {
-                Logger.getLogger(OrdersDaoFileImpl.class.getName()).log(Level.SEVERE, null, ex);
-            }
-            out.close();
-        });
+        // rewrite each changed date file or delete it when it has no orders left,
+        // untouched date files are left as they are. snapshot is not written here so
+        // saving costs the same however many orders there are, next load parses only changed files
+        for (LocalDate orderDate : new ArrayList<>(dirtyDates)) {
+            // date index keeps orders sorted by order number
+            SortedMap<Integer, Order> dateOrders = ordersByDate.getOrDefault(orderDate, Collections.emptySortedMap());
+            ordersFormat.writeOrdersFile(orderDate, dateOrders.values());
+            dirtyDates.remove(orderDate);
+        }
+        // changes are on disk now, a failed write above throws before journal is emptied
+        if (journal != null) {
+            ordersFormat.syncOrdersFolder();
+            journal.clear();
+        }
     }
 
     @Override
@@ -143,133 +160,260 @@ public class OrdersDaoFileImpl implements OrdersDao {
 
     @Override
     public Order removeOrder(Order order) throws DataPersistenceException {
-        return orders.remove(order.getOrderNumber());
+        Order orderToRemove = orders.get(order.getOrderNumber());
+        if (orderToRemove != null && journal != null) {
+            // change is durable before it is applied
+            journal.append(REMOVED_ENTRY + delimiter + ordersFormat.formatDate(orderToRemove.getOrderDate())
+                    + delimiter + orderToRemove.getOrderNumber());
+        }
+        Order removedOrder = orders.remove(order.getOrderNumber());
+        if (removedOrder != null) {
+            unindexOrder(removedOrder);
+            // date file has to be rewritten without the removed order
+            dirtyDates.add(removedOrder.getOrderDate());
+        }
+        return removedOrder;
     }
 
     @Override
     public List<Order> getAllOrders(LocalDate orderDate) throws DataPersistenceException {
-        List<Order> allDateOrders = orders.values().stream()
-                .filter((order) -> order.getOrderDate().compareTo(orderDate) == 0)
-                .collect(Collectors.toList());
-        return allDateOrders;
+        // only orders of chosen date are read from the date index
+        SortedMap<Integer, Order> dateOrders = ordersByDate.get(orderDate);
+        if (dateOrders == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(dateOrders.values());
     }
 
     @Override
     public List<Order> getAllOrders() throws DataPersistenceException {
-        return new ArrayList<Order>(orders.values());
+        // orders map is in hash order, date index gives orders by date then order number
+        List<Order> allOrders = new ArrayList<>(orders.size());
+        for (SortedMap<Integer, Order> dateOrders : ordersByDate.values()) {
+            allOrders.addAll(dateOrders.values());
+        }
+        return allOrders;
+    }
+
+    @Override
+    public int getLastOrderNumber() throws DataPersistenceException {
+        // orders of each date are sorted by number, only last of each date is checked
+        int lastOrderNumber = 0;
+        for (SortedMap<Integer, Order> dateOrders : ordersByDate.values()) {
+            if (!dateOrders.isEmpty()) {
+                lastOrderNumber = Math.max(lastOrderNumber, dateOrders.lastKey());
+            }
+        }
+        return lastOrderNumber;
+    }
+
+    @Override
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return streamOrders(fromDate, toDate).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        if (fromDate.isAfter(toDate)) {
+            return Stream.empty();
+        }
+        // only dates in range are visited, orders of each date are already sorted by order number
+        return ordersByDate.subMap(fromDate, true, toDate, true).values().stream()
+                .flatMap((dateOrders) -> dateOrders.values().stream());
     }
 
     @Override
     public void saveOrder(Order order) throws DataPersistenceException {
-        orders.put(order.getOrderNumber(), order);
+        if (journal != null) {
+            // change is durable before it is applied
+            journal.append(SAVED_ENTRY + delimiter + ordersFormat.formatDate(order.getOrderDate())
+                    + delimiter + ordersFormat.marshallOrder(order));
+        }
+        Order previousOrder = putOrder(order);
+        // mark both old and new order date as changed in case order moved to another date
+        if (previousOrder != null) {
+            dirtyDates.add(previousOrder.getOrderDate());
+        }
+        dirtyDates.add(order.getOrderDate());
     }
 
     @Override
     public void exportAllOrders() throws DataPersistenceException {
-        PrintWriter out;
-        try {
-            File file = new File(backupFile);
-            out = new PrintWriter(file);
-            // print file header 
-            String exportDataHeader = ordersHeader + ",OrderDate";
-            out.println(exportDataHeader);
-        } catch (IOException e) {
-            throw new DataPersistenceException(
-                    "Could not save states data.", e);
+        ordersFormat.exportOrders(backupFile, ordersByDate.keySet(), this::getAllOrders);
+    }
+
+    /**
+     * applies journal entries on top of orders loaded from files, changed dates
+     * are marked so next save writes them to orders files
+     *
+     * @return number of applied entries
+     * @throws DataPersistenceException
+     */
+    private int replayJournal() throws DataPersistenceException {
+        if (journal == null) {
+            return 0;
+        }
+        List<String> entries = journal.readEntries();
+        for (String entry : entries) {
+            DelimitedRecordReader reader = ordersFormat.newReader(ByteBuffer.wrap(entry.getBytes(StandardCharsets.UTF_8)));
+            try {
+                String entryType = reader.nextString();
+                LocalDate orderDate = ordersFormat.parseDate(reader.nextString());
+                if (SAVED_ENTRY.equals(entryType)) {
+                    Order savedOrder = ordersFormat.unmarshallOrder(reader, orderDate);
+                    Order previousOrder = putOrder(savedOrder);
+                    if (previousOrder != null) {
+                        dirtyDates.add(previousOrder.getOrderDate());
+                    }
+                    dirtyDates.add(orderDate);
+                } else if (REMOVED_ENTRY.equals(entryType)) {
+                    Order removedOrder = orders.remove(reader.nextInt());
+                    if (removedOrder != null) {
+                        unindexOrder(removedOrder);
+                        dirtyDates.add(removedOrder.getOrderDate());
+                    }
+                } else {
+                    throw new DataPersistenceException("Unknown orders journal entry: " + entry);
+                }
+            } catch (RuntimeException e) {
+                throw new DataPersistenceException("Could not read orders journal entry: " + entry, e);
+            }
         }
-        // create list of products objects to be wrriten to the file
-        List<Order> ordersList = new ArrayList(orders.values());
-        ordersList.stream().forEach((order) -> {
-            String orderAsText = marshallOrder(order);
-            orderAsText += delimiter + order.getOrderDate().toString();
-            out.println(orderAsText);
-            out.flush();
-        });
-        // Clean up
-        out.close();
+        return entries.size();
     }
 
     /**
-     * extracts order date from file name
+     * puts order into orders map and date index, replaces order with same order
+     * number
      *
-     * @param fileName file name with data on it
-     * @return Local date object from file name
+     * @param order order to put
+     * @return replaced order or null if order number is new
      */
-    private LocalDate getOrderDateFromFileName(String fileName) {
-        // use _ and . to get date from file name
-        String dateString = fileName.substring(fileName.indexOf("_") + 1, fileName.indexOf("."));
-        return LocalDate.parse(dateString, DateTimeFormatter.ofPattern("MMddyyyy"));
+    private Order putOrder(Order order) {
+        Order previousOrder = orders.put(order.getOrderNumber(), order);
+        if (previousOrder != null) {
+            unindexOrder(previousOrder);
+        }
+        ordersByDate.computeIfAbsent(order.getOrderDate(), (orderDate) -> new TreeMap<>())
+                .put(order.getOrderNumber(), order);
+        return previousOrder;
     }
 
     /**
-     * creates order object from string
+     * removes order from date index, drops the date when it has no orders left
      *
-     * @param orderAsText order object as string
-     * @return Order object
+     * @param order order to remove from index
      */
-    private Order unmarshallOrder(String orderAsText) {
-        String[] orderTokens = orderAsText.split(delimiter);
-        Order orderFromFile = new Order();
-        // index 0 - OrderNumber
-        orderFromFile.setOrderNumber(Integer.parseInt(orderTokens[0]));
-        // index 1 - CustomerName
-        // checks if cutomerName has / and replace it with comma 
-        // this was added to prevent program from crashing when name has a value similiar to delimiter
-        if (orderTokens[1].contains("/")) {
-            orderFromFile.setCustomerName(orderTokens[1].replace("/", ","));
-        } else {
-            orderFromFile.setCustomerName(orderTokens[1]);
+    private void unindexOrder(Order order) {
+        SortedMap<Integer, Order> dateOrders = ordersByDate.get(order.getOrderDate());
+        if (dateOrders != null) {
+            dateOrders.remove(order.getOrderNumber());
+            if (dateOrders.isEmpty()) {
+                ordersByDate.remove(order.getOrderDate());
+            }
         }
-        // index 2 - State
-        orderFromFile.setState(orderTokens[2]);
-        // index 3 - TaxRate
-        orderFromFile.setTaxRate(new BigDecimal(orderTokens[3]));
-        // index 4 - ProductType
-        orderFromFile.setProductType(orderTokens[4]);
-        // index 5 - Area
-        orderFromFile.setArea(new BigDecimal(orderTokens[5]));
-        // index 6 - CostPerSquareFoot
-        orderFromFile.setCostPerSquareFoot(new BigDecimal(orderTokens[6]));
-        // index 7 - LaborCostPerSquareFoot
-        orderFromFile.setLaborCostPerSquareFoot(new BigDecimal(orderTokens[7]));
-        // index 8 - MaterialCost
-        orderFromFile.setMaterialCost(new BigDecimal(orderTokens[8]));
-        // index 9 - LaborCost
-        orderFromFile.setLaborCost(new BigDecimal(orderTokens[9]));
-        // index 10 - Tax
-        orderFromFile.setTax(new BigDecimal(orderTokens[10]));
-        // index 11 - Total
-        orderFromFile.setTotal(new BigDecimal(orderTokens[11]));
-        return orderFromFile;
     }
 
     /**
-     * creates string from order object
+     * reads all orders files one by one or using a pool of threads
      *
-     * @param order order object
-     * @return string has order object data
+     * @param filePaths orders files to read
+     * @param threads number of threads to read files with
+     * @return orders of each file in the same order as files paths
+     * @throws DataPersistenceException
      */
-    private String marshallOrder(Order order) {
-        // create String to represnt order object
-        String orderAsText = order.getOrderNumber() + delimiter;
-        // checks if name has a value similair to delimiter replace it with / 
-        // this prevents program from crashing when name has comma
-        if (order.getCustomerName().contains(",")) {
-            orderAsText += order.getCustomerName().replace(",", "/") + delimiter;
-        } else {
-            orderAsText += order.getCustomerName() + delimiter;
+    private List<List<Order>> readOrdersFiles(List<Path> filePaths, int threads) throws DataPersistenceException {
+        if (threads > 1) {
+            return readOrdersFilesInParallel(filePaths, threads);
+        }
+        List<List<Order>> filesOrders = new ArrayList<>();
+        for (Path filePath : filePaths) {
+            filesOrders.add(ordersFormat.readOrdersFile(filePath));
+        }
+        return filesOrders;
+    }
+
+    /**
+     * reads size and last modified time of orders files
+     *
+     * @param filePaths orders files
+     * @return version of each file by file name
+     * @throws DataPersistenceException
+     */
+    private Map<String, FileVersion> readFileVersions(List<Path> filePaths) throws DataPersistenceException {
+        Map<String, FileVersion> fileVersions = new HashMap<>();
+        for (Path filePath : filePaths) {
+            try {
+                fileVersions.put(filePath.getFileName().toString(), FileVersion.of(filePath));
+            } catch (IOException e) {
+                throw new DataPersistenceException("Could not load orders file " + filePath.getFileName(), e);
+            }
+        }
+        return fileVersions;
+    }
+
+    /**
+     * reads orders of files that did not change since snapshot was written
+     *
+     * @param fileVersions current version of each orders file by file name
+     * @return orders by file name, empty if snapshot can not be read
+     */
+    private Map<String, List<Order>> readSnapshot(Map<String, FileVersion> fileVersions) {
+        try {
+            return snapshot.read(fileVersions);
+        } catch (IOException | RuntimeException ex) {
+            // orders files are still there, they are read instead
+            Logger.getLogger(OrdersDaoFileImpl.class.getName()).log(Level.WARNING, "could not read orders snapshot, reading orders files", ex);
+            return new HashMap<>();
+        }
+    }
+
+    /**
+     * writes snapshot of orders files, failure is only logged because orders
+     * files hold the same orders and a changed file is never read from snapshot
+     *
+     * @param fileVersions version of each orders file by file name
+     * @param filesOrders orders of each file by file name
+     */
+    private void writeSnapshot(Map<String, FileVersion> fileVersions, Map<String, List<Order>> filesOrders) {
+        try {
+            snapshot.write(fileVersions, filesOrders);
+        } catch (IOException ex) {
+            Logger.getLogger(OrdersDaoFileImpl.class.getName()).log(Level.WARNING, "could not write orders snapshot", ex);
+        }
+    }
+
+    /**
+     * reads orders files concurrently using a bounded pool of threads
+     *
+     * @param filePaths orders files to read
+     * @param threads number of threads to read files with
+     * @return orders of each file in the same order as files paths
+     * @throws DataPersistenceException
+     */
+    private List<List<Order>> readOrdersFilesInParallel(List<Path> filePaths, int threads) throws DataPersistenceException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            // each file is parsed into its own list, merging is done by the caller
+            List<Future<List<Order>>> futures = new ArrayList<>();
+            for (Path filePath : filePaths) {
+                futures.add(executor.submit(() -> ordersFormat.readOrdersFile(filePath)));
+            }
+            List<List<Order>> filesOrders = new ArrayList<>();
+            for (Future<List<Order>> future : futures) {
+                filesOrders.add(future.get());
+            }
+            return filesOrders;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof DataPersistenceException) {
+                throw (DataPersistenceException) ex.getCause();
+            }
+            throw new DataPersistenceException("could not load orders files", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataPersistenceException("loading orders files was interrupted", ex);
+        } finally {
+            executor.shutdownNow();
         }
-        orderAsText += order.getState() + delimiter;
-        orderAsText += order.getTaxRate() + delimiter;
-        orderAsText += order.getProductType() + delimiter;
-        orderAsText += order.getArea() + delimiter;
-        orderAsText += order.getCostPerSquareFoot() + delimiter;
-        orderAsText += order.getLaborCostPerSquareFoot() + delimiter;
-        orderAsText += order.getMaterialCost() + delimiter;
-        orderAsText += order.getLaborCost() + delimiter;
-        orderAsText += order.getTax() + delimiter;
-        orderAsText += order.getTotal();
-        // order object as string
-        return orderAsText;
     }
 }
@@ -0,0 +1,304 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * implements OrdersDao that loads orders of a date only when that date is
+ * used. loading only finds which dates have orders files, each date file is
+ * read the first time one of its orders is asked for. least recently used
+ * dates without unsaved changes are dropped from memory once loaded orders go
+ * over the memory budget
+ *
+ * @author beshoy
+ */
+public class OrdersDaoLazyFileImpl implements OrdersDao {
+
+    // rough heap size of one order object with its strings and decimals
+    static final long ESTIMATED_ORDER_BYTES = 1024;
+    // heap size of one order number date entry, key and reference in a table kept at most half full
+    static final long ESTIMATED_INDEX_ENTRY_BYTES = 16;
+
+    private OrdersFileFormat ordersFormat;
+    private String backupFile;
+    // estimated bytes loaded orders may take before cold dates are dropped
+    private long memoryBudgetBytes;
+    // dates that have orders, saved in files or only in memory
+    private NavigableSet<LocalDate> orderDates = new TreeSet<>();
+    // loaded dates in access order, first entry is the least recently used
+    private LinkedHashMap<LocalDate, SortedMap<Integer, Order>> loadedDates = new LinkedHashMap<>(16, 0.75f, true);
+    // loaded dates with changes not saved to their orders files, never dropped
+    private Set<LocalDate> dirtyDates = new HashSet<>();
+    // date of each order number loaded or saved since load, kept when its date is dropped
+    // so an order moved to another date is also removed from its old date file. counted
+    // against memory budget, entries of dropped dates are cleared when budget runs out
+    private IntObjectMap<LocalDate> orderNumberDates = new IntObjectMap<>();
+    private long loadedOrdersCount;
+
+    public OrdersDaoLazyFileImpl() {
+    }
+
+    public OrdersDaoLazyFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader, long memoryBudgetBytes) {
+        this.ordersFormat = new OrdersFileFormat(ordersFile, delimiter, ordersHeader);
+        this.backupFile = backupFile;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    @Override
+    public void loadOrders() throws DataPersistenceException {
+        List<Path> filePaths = ordersFormat.getOrdersFilePaths();
+        // only dates are indexed, orders are read when their date is used
+        orderDates.clear();
+        loadedDates.clear();
+        dirtyDates.clear();
+        orderNumberDates.clear();
+        loadedOrdersCount = 0;
+        for (Path filePath : filePaths) {
+            orderDates.add(ordersFormat.getOrderDate(filePath));
+        }
+        Logger.getLogger(OrdersDaoLazyFileImpl.class.getName()).log(Level.FINE,
+                "indexed {0} orders dates", orderDates.size());
+    }
+
+    @Override
+    public void saveOrders() throws DataPersistenceException {
+        // only changed dates are loaded and need to be written
+        for (LocalDate orderDate : new ArrayList<>(dirtyDates)) {
+            SortedMap<Integer, Order> dateOrders = loadedDates.get(orderDate);
+            ordersFormat.writeOrdersFile(orderDate, dateOrders.values());
+            if (dateOrders.isEmpty()) {
+                orderDates.remove(orderDate);
+            }
+            dirtyDates.remove(orderDate);
+        }
+        // saved dates can be dropped now
+        evictColdDates(null);
+    }
+
+    @Override
+    public Order getOrder(LocalDate date, int orderNumber) throws DataPersistenceException, NoOrderFoundException {
+        Order order = getDateOrders(date).get(orderNumber);
+        if (order == null) {
+            throw new NoOrderFoundException("No order found for the given date or number");
+        }
+        return order;
+    }
+
+    @Override
+    public Order removeOrder(Order order) throws DataPersistenceException {
+        SortedMap<Integer, Order> dateOrders = getDateOrders(order.getOrderDate());
+        Order removedOrder = dateOrders.remove(order.getOrderNumber());
+        if (removedOrder != null) {
+            loadedOrdersCount--;
+            orderNumberDates.remove(removedOrder.getOrderNumber());
+            // date file has to be rewritten without the removed order
+            dirtyDates.add(removedOrder.getOrderDate());
+        }
+        return removedOrder;
+    }
+
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws DataPersistenceException {
+        return new ArrayList<>(getDateOrders(orderDate).values());
+    }
+
+    @Override
+    public List<Order> getAllOrders() throws DataPersistenceException {
+        // dates that are not loaded are read without keeping them in memory
+        List<Order> allOrders = new ArrayList<>();
+        for (LocalDate orderDate : orderDates) {
+            allOrders.addAll(peekDateOrders(orderDate));
+        }
+        return allOrders;
+    }
+
+    @Override
+    public int getLastOrderNumber() throws DataPersistenceException {
+        // dates that are not loaded only have their order numbers read, no orders are kept
+        int lastOrderNumber = 0;
+        for (LocalDate orderDate : orderDates) {
+            SortedMap<Integer, Order> dateOrders = loadedDates.get(orderDate);
+            if (dateOrders != null) {
+                lastOrderNumber = Math.max(lastOrderNumber, dateOrders.isEmpty() ? 0 : dateOrders.lastKey());
+            } else {
+                File file = ordersFormat.getOrdersFile(orderDate);
+                if (file.exists()) {
+                    lastOrderNumber = Math.max(lastOrderNumber, ordersFormat.readLastOrderNumber(file.toPath()));
+                }
+            }
+        }
+        return lastOrderNumber;
+    }
+
+    @Override
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return streamOrders(fromDate, toDate).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        if (fromDate.isAfter(toDate)) {
+            return Stream.empty();
+        }
+        // dates in range are copied so stream is not affected by dates loaded or dropped while it is used,
+        // dates that are not loaded are read one at a time without keeping them in memory
+        List<LocalDate> rangeDates = new ArrayList<>(orderDates.subSet(fromDate, true, toDate, true));
+        return rangeDates.stream().flatMap((orderDate) -> {
+            try {
+                return peekDateOrders(orderDate).stream();
+            } catch (DataPersistenceException ex) {
+                throw new IllegalStateException(ex.getMessage(), ex);
+            }
+        });
+    }
+
+    @Override
+    public void saveOrder(Order order) throws DataPersistenceException {
+        // order number may be saved under another date when order date was changed,
+        // that date is read again if it was dropped so the old copy is removed from its file
+        LocalDate previousDate = orderNumberDates.get(order.getOrderNumber());
+        if (previousDate != null && !previousDate.equals(order.getOrderDate())
+                && getDateOrders(previousDate).remove(order.getOrderNumber()) != null) {
+            loadedOrdersCount--;
+            dirtyDates.add(previousDate);
+        }
+        SortedMap<Integer, Order> dateOrders = getDateOrders(order.getOrderDate());
+        if (dateOrders.put(order.getOrderNumber(), order) == null) {
+            loadedOrdersCount++;
+        }
+        orderNumberDates.put(order.getOrderNumber(), order.getOrderDate());
+        orderDates.add(order.getOrderDate());
+        dirtyDates.add(order.getOrderDate());
+    }
+
+    @Override
+    public void exportAllOrders() throws DataPersistenceException {
+        // one date is read at a time so export does not fill memory
+        ordersFormat.exportOrders(backupFile, orderDates, this::peekDateOrders);
+    }
+
+    /**
+     * checks if orders of a date are in memory
+     *
+     * @param orderDate orders date
+     * @return true if date is loaded
+     */
+    boolean isLoaded(LocalDate orderDate) {
+        return loadedDates.containsKey(orderDate);
+    }
+
+    /**
+     * @return number of order numbers whose date is remembered
+     */
+    int indexedOrdersCount() {
+        return orderNumberDates.size();
+    }
+
+    /**
+     * gets orders of a date, reads date file the first time date is used
+     *
+     * @param orderDate orders date
+     * @return orders of date by order number
+     * @throws DataPersistenceException
+     */
+    private SortedMap<Integer, Order> getDateOrders(LocalDate orderDate) throws DataPersistenceException {
+        SortedMap<Integer, Order> dateOrders = loadedDates.get(orderDate);
+        if (dateOrders == null) {
+            dateOrders = new TreeMap<>();
+            for (Order order : readDateOrders(orderDate)) {
+                dateOrders.put(order.getOrderNumber(), order);
+                orderNumberDates.put(order.getOrderNumber(), orderDate);
+            }
+            loadedDates.put(orderDate, dateOrders);
+            loadedOrdersCount += dateOrders.size();
+            evictColdDates(orderDate);
+        }
+        return dateOrders;
+    }
+
+    /**
+     * gets orders of a date without loading the date into memory
+     *
+     * @param orderDate orders date
+     * @return orders of date sorted by order number
+     * @throws DataPersistenceException
+     */
+    private List<Order> peekDateOrders(LocalDate orderDate) throws DataPersistenceException {
+        // get does not change access order, reading all dates keeps recently used dates loaded
+        SortedMap<Integer, Order> dateOrders = loadedDates.get(orderDate);
+        if (dateOrders != null) {
+            return new ArrayList<>(dateOrders.values());
+        }
+        List<Order> fileOrders = readDateOrders(orderDate);
+        fileOrders.sort((first, second) -> Integer.compare(first.getOrderNumber(), second.getOrderNumber()));
+        return fileOrders;
+    }
+
+    /**
+     * reads orders file of a date, orders are not recorded anywhere so peeks
+     * at dates do not grow memory
+     *
+     * @param orderDate orders date
+     * @return orders in file, empty when date has no file
+     * @throws DataPersistenceException
+     */
+    private List<Order> readDateOrders(LocalDate orderDate) throws DataPersistenceException {
+        File file = ordersFormat.getOrdersFile(orderDate);
+        if (!orderDates.contains(orderDate) || !file.exists()) {
+            return new ArrayList<>();
+        }
+        return ordersFormat.readOrdersFile(file.toPath());
+    }
+
+    /**
+     * drops least recently used dates without unsaved changes until loaded
+     * orders and order number index fit memory budget, clears index entries
+     * of dropped dates if that is not enough
+     *
+     * @param keptDate date that is being used and must stay loaded, or null
+     */
+    private void evictColdDates(LocalDate keptDate) {
+        Iterator<Map.Entry<LocalDate, SortedMap<Integer, Order>>> iterator = loadedDates.entrySet().iterator();
+        while (isOverBudget() && iterator.hasNext()) {
+            Map.Entry<LocalDate, SortedMap<Integer, Order>> loadedDate = iterator.next();
+            if (!loadedDate.getKey().equals(keptDate) && !dirtyDates.contains(loadedDate.getKey())) {
+                loadedOrdersCount -= loadedDate.getValue().size();
+                iterator.remove();
+            }
+        }
+        if (isOverBudget() && orderNumberDates.size() > loadedOrdersCount) {
+            // index is built again from loaded dates, moves out of dropped dates are not seen after this
+            orderNumberDates = new IntObjectMap<>((int) loadedOrdersCount);
+            for (Map.Entry<LocalDate, SortedMap<Integer, Order>> loadedDate : loadedDates.entrySet()) {
+                for (Integer orderNumber : loadedDate.getValue().keySet()) {
+                    orderNumberDates.put(orderNumber, loadedDate.getKey());
+                }
+            }
+        }
+    }
+
+    private boolean isOverBudget() {
+        return loadedOrdersCount * ESTIMATED_ORDER_BYTES + orderNumberDates.size() * ESTIMATED_INDEX_ENTRY_BYTES > memoryBudgetBytes;
+    }
+}
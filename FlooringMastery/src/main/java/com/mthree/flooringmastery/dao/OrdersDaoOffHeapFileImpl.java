@@ -0,0 +1,275 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * implements OrdersDao keeping orders in fixed size slots of direct buffers
+ * outside the java heap. the heap only holds an order number to slot index and
+ * slots grouped by date, so many millions of orders do not grow the heap or
+ * garbage collection pauses. direct memory is limited by
+ * -XX:MaxDirectMemorySize
+ *
+ * @author beshoy
+ */
+public class OrdersDaoOffHeapFileImpl implements OrdersDao {
+
+    private static final int DEFAULT_SLOTS_PER_BUFFER = 65536;
+
+    private OrdersFileFormat ordersFormat;
+    private String backupFile;
+    private OffHeapOrderStore store;
+    // order number -> slot
+    private IntIntMap slots = new IntIntMap();
+    // slots grouped by date and sorted by order number, kept in sync with slots map
+    private NavigableMap<LocalDate, DateSlots> slotsByDate = new TreeMap<>();
+    // dates of orders files that have changed since last load or save
+    private Set<LocalDate> dirtyDates = new HashSet<>();
+
+    public OrdersDaoOffHeapFileImpl() {
+        this.store = new OffHeapOrderStore(DEFAULT_SLOTS_PER_BUFFER);
+    }
+
+    public OrdersDaoOffHeapFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader) {
+        this(ordersFile, delimiter, backupFile, ordersHeader, DEFAULT_SLOTS_PER_BUFFER);
+    }
+
+    public OrdersDaoOffHeapFileImpl(String ordersFile, String delimiter, String backupFile, String ordersHeader, int slotsPerBuffer) {
+        this.ordersFormat = new OrdersFileFormat(ordersFile, delimiter, ordersHeader);
+        this.backupFile = backupFile;
+        this.store = new OffHeapOrderStore(slotsPerBuffer);
+    }
+
+    @Override
+    public void loadOrders() throws DataPersistenceException {
+        // clearing store also drops names of removed orders
+        store.clear();
+        slots.clear();
+        slotsByDate.clear();
+        dirtyDates.clear();
+        List<Path> filePaths = ordersFormat.getOrdersFilePaths();
+        for (Path filePath : filePaths) {
+            // orders are written to slots one file at a time so only one file of Order objects is on the heap
+            for (Order order : ordersFormat.readOrdersFile(filePath)) {
+                putOrder(order);
+            }
+        }
+        Logger.getLogger(OrdersDaoOffHeapFileImpl.class.getName()).log(Level.FINE,
+                "loaded {0} orders from {1} files into {2} off heap bytes", new Object[]{slots.size(), filePaths.size(), store.offHeapBytes()});
+    }
+
+    @Override
+    public void saveOrders() throws DataPersistenceException {
+        // rewrite each changed date file or delete it when it has no orders left
+        for (LocalDate orderDate : new ArrayList<>(dirtyDates)) {
+            ordersFormat.writeOrdersFile(orderDate, toOrders(slotsByDate.get(orderDate)));
+            dirtyDates.remove(orderDate);
+        }
+    }
+
+    @Override
+    public Order getOrder(LocalDate date, int orderNumber) throws DataPersistenceException, NoOrderFoundException {
+        int slot = slots.get(orderNumber);
+        if (slot == IntIntMap.NO_VALUE || !store.getOrderDate(slot).equals(date)) {
+            throw new NoOrderFoundException("No order found for the given date or number");
+        }
+        return store.read(slot);
+    }
+
+    @Override
+    public Order removeOrder(Order order) throws DataPersistenceException {
+        int slot = slots.remove(order.getOrderNumber());
+        if (slot == IntIntMap.NO_VALUE) {
+            return null;
+        }
+        Order removedOrder = store.read(slot);
+        unindexSlot(slot);
+        store.free(slot);
+        // date file has to be rewritten without the removed order
+        dirtyDates.add(removedOrder.getOrderDate());
+        return removedOrder;
+    }
+
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws DataPersistenceException {
+        return toOrders(slotsByDate.get(orderDate));
+    }
+
+    @Override
+    public List<Order> getAllOrders() throws DataPersistenceException {
+        List<Order> allOrders = new ArrayList<>(slots.size());
+        for (DateSlots dateSlots : slotsByDate.values()) {
+            allOrders.addAll(toOrders(dateSlots));
+        }
+        return allOrders;
+    }
+
+    @Override
+    public int getLastOrderNumber() throws DataPersistenceException {
+        // slots of each date are sorted by order number, only last slot of each date is read
+        int lastOrderNumber = 0;
+        for (DateSlots dateSlots : slotsByDate.values()) {
+            if (dateSlots.size > 0) {
+                lastOrderNumber = Math.max(lastOrderNumber, store.getOrderNumber(dateSlots.slots[dateSlots.size - 1]));
+            }
+        }
+        return lastOrderNumber;
+    }
+
+    @Override
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return streamOrders(fromDate, toDate).collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        if (fromDate.isAfter(toDate)) {
+            return Stream.empty();
+        }
+        // orders are read from slots as the stream is used
+        return slotsByDate.subMap(fromDate, true, toDate, true).values().stream()
+                .flatMap((dateSlots) -> IntStream.range(0, dateSlots.size).mapToObj((i) -> store.read(dateSlots.slots[i])));
+    }
+
+    @Override
+    public void saveOrder(Order order) throws DataPersistenceException {
+        LocalDate previousDate = putOrder(order);
+        // mark both old and new order date as changed in case order moved to another date
+        if (previousDate != null) {
+            dirtyDates.add(previousDate);
+        }
+        dirtyDates.add(order.getOrderDate());
+    }
+
+    @Override
+    public void exportAllOrders() throws DataPersistenceException {
+        // orders are read from slots one date at a time while writing
+        ordersFormat.exportOrders(backupFile, slotsByDate.keySet(), this::getAllOrders);
+    }
+
+    /**
+     * writes order into a slot and indexes it, frees slot of order with same
+     * order number
+     *
+     * @param order order to put
+     * @return date of replaced order or null if order number is new
+     */
+    private LocalDate putOrder(Order order) {
+        int previousSlot = slots.get(order.getOrderNumber());
+        LocalDate previousDate = null;
+        if (previousSlot != IntIntMap.NO_VALUE) {
+            previousDate = store.getOrderDate(previousSlot);
+            unindexSlot(previousSlot);
+            store.free(previousSlot);
+        }
+        int slot = store.add(order);
+        slots.put(order.getOrderNumber(), slot);
+        slotsByDate.computeIfAbsent(order.getOrderDate(), (orderDate) -> new DateSlots()).put(slot);
+        return previousDate;
+    }
+
+    /**
+     * removes slot from date index, drops the date when it has no orders left
+     *
+     * @param slot slot to remove from index
+     */
+    private void unindexSlot(int slot) {
+        LocalDate orderDate = store.getOrderDate(slot);
+        DateSlots dateSlots = slotsByDate.get(orderDate);
+        if (dateSlots != null) {
+            dateSlots.remove(store.getOrderNumber(slot));
+            if (dateSlots.size == 0) {
+                slotsByDate.remove(orderDate);
+            }
+        }
+    }
+
+    /**
+     * reads Order objects from slots
+     *
+     * @param dateSlots slots of a date, may be null
+     * @return orders sorted by order number
+     */
+    private List<Order> toOrders(DateSlots dateSlots) {
+        if (dateSlots == null) {
+            return new ArrayList<>();
+        }
+        List<Order> dateOrders = new ArrayList<>(dateSlots.size);
+        for (int i = 0; i < dateSlots.size; i++) {
+            dateOrders.add(store.read(dateSlots.slots[i]));
+        }
+        return dateOrders;
+    }
+
+    /**
+     * slots of one date in an int array sorted by order number of the slot,
+     * order numbers are read from the store while searching
+     */
+    private class DateSlots {
+
+        private int[] slots = new int[4];
+        private int size;
+
+        private void put(int slot) {
+            int index = indexOf(store.getOrderNumber(slot));
+            if (index >= 0) {
+                slots[index] = slot;
+                return;
+            }
+            index = -index - 1;
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, index, slots, index + 1, size - index);
+            slots[index] = slot;
+            size++;
+        }
+
+        private void remove(int orderNumber) {
+            int index = indexOf(orderNumber);
+            if (index >= 0) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+
+        /**
+         * finds slot by binary search
+         *
+         * @return index of slot, or -(insertion point) - 1 when not found
+         */
+        private int indexOf(int orderNumber) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleNumber = store.getOrderNumber(slots[middle]);
+                if (middleNumber < orderNumber) {
+                    low = middle + 1;
+                } else if (middleNumber > orderNumber) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,383 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * reads and writes orders text files, one Orders_MMddyyyy.txt file per orders
+ * date. shared by orders dao implementations that store orders in these files
+ *
+ * @author beshoy
+ */
+class OrdersFileFormat {
+
+    private static final DateTimeFormatter FILE_DATE_FORMAT = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private final String ordersFile;
+    private final String delimiter;
+    private final String ordersHeader;
+
+    /**
+     * creates format for orders files inside a folder
+     *
+     * @param ordersFile orders folder
+     * @param delimiter single character fields delimiter
+     * @param ordersHeader header line written on top of each file
+     */
+    OrdersFileFormat(String ordersFile, String delimiter, String ordersHeader) {
+        this.ordersFile = ordersFile;
+        this.delimiter = delimiter;
+        this.ordersHeader = ordersHeader;
+    }
+
+    String getDelimiter() {
+        return delimiter;
+    }
+
+    String getOrdersHeader() {
+        return ordersHeader;
+    }
+
+    /**
+     * gets paths of all orders files inside orders folder
+     *
+     * @return sorted list of orders files paths
+     * @throws DataPersistenceException
+     */
+    List<Path> getOrdersFilePaths() throws DataPersistenceException {
+        // uses Stream Path to real all files inside a folder or path
+        try ( Stream<Path> paths = Files.walk(Paths.get(ordersFile))) {
+            return paths.filter(Files::isRegularFile)
+                    .filter((filePath) -> isOrdersFileName(filePath.getFileName().toString()))
+                    .sorted().collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new DataPersistenceException("could not load orders files", ex);
+        }
+    }
+
+    /**
+     * gets orders file that holds orders of a given date
+     *
+     * @param orderDate orders date
+     * @return orders file for that date
+     */
+    File getOrdersFile(LocalDate orderDate) {
+        // create file name for order date
+        return Paths.get(ordersFile, "Orders_" + formatDate(orderDate) + ".txt").toFile();
+    }
+
+    /**
+     * extracts order date from orders file path
+     *
+     * @param filePath orders file path
+     * @return Local date object from file name
+     */
+    LocalDate getOrderDate(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        // use _ and . to get date from file name
+        return parseDate(fileName.substring(fileName.indexOf("_") + 1, fileName.indexOf(".")));
+    }
+
+    /**
+     * formats date the way it is written in file names and journal entries
+     *
+     * @param orderDate date to format
+     * @return date as MMddyyyy
+     */
+    String formatDate(LocalDate orderDate) {
+        return orderDate.format(FILE_DATE_FORMAT);
+    }
+
+    /**
+     * parses date written by formatDate
+     *
+     * @param dateText date as MMddyyyy
+     * @return Local date object
+     */
+    LocalDate parseDate(String dateText) {
+        return LocalDate.parse(dateText, FILE_DATE_FORMAT);
+    }
+
+    /**
+     * reads all orders of a single orders file
+     *
+     * @param filePath orders file path
+     * @return list of orders found in file
+     * @throws DataPersistenceException
+     */
+    List<Order> readOrdersFile(Path filePath) throws DataPersistenceException {
+        ByteBuffer fileContent;
+        try {
+            // file is read into a heap array and not mapped, orders files are replaced on save
+            // and a live mapping would keep the old file open until the buffer is collected
+            fileContent = ByteBuffer.wrap(Files.readAllBytes(filePath));
+        } catch (IOException e) {
+            throw new DataPersistenceException(
+                    "Could not load orders file " + filePath.getFileName(), e);
+        }
+        List<Order> fileOrders = new ArrayList<>();
+        // all orders in file share the same date as the file name
+        LocalDate orderDate = getOrderDate(filePath);
+        DelimitedRecordReader reader = newReader(fileContent);
+        // skip data header in file
+        reader.endRecord();
+        try {
+            // Process while we have more lines in the file
+            while (reader.hasNextRecord()) {
+                fileOrders.add(unmarshallOrder(reader, orderDate));
+            }
+        } catch (RuntimeException e) {
+            throw new DataPersistenceException(
+                    "Could not read orders file " + filePath.getFileName(), e);
+        }
+        return fileOrders;
+    }
+
+    /**
+     * reads only order numbers of a single orders file, no orders are built
+     *
+     * @param filePath orders file path
+     * @return highest order number in file, 0 if file has no orders
+     * @throws DataPersistenceException
+     */
+    int readLastOrderNumber(Path filePath) throws DataPersistenceException {
+        ByteBuffer fileContent;
+        try {
+            fileContent = ByteBuffer.wrap(Files.readAllBytes(filePath));
+        } catch (IOException e) {
+            throw new DataPersistenceException(
+                    "Could not load orders file " + filePath.getFileName(), e);
+        }
+        int lastOrderNumber = 0;
+        DelimitedRecordReader reader = newReader(fileContent);
+        // skip data header in file
+        reader.endRecord();
+        try {
+            // order number is the first field, rest of the record is skipped
+            while (reader.hasNextRecord()) {
+                lastOrderNumber = Math.max(lastOrderNumber, reader.nextInt());
+                reader.endRecord();
+            }
+        } catch (RuntimeException e) {
+            throw new DataPersistenceException(
+                    "Could not read orders file " + filePath.getFileName(), e);
+        }
+        return lastOrderNumber;
+    }
+
+    /**
+     * writes orders of a single date into its orders file, deletes the file
+     * when date has no orders left. orders are written to a temporary file
+     * that replaces the orders file only once it is fully written and synced,
+     * so a failed write leaves the previous file in place
+     *
+     * @param orderDate orders date
+     * @param dateOrders orders to write to file in order number order
+     * @throws DataPersistenceException
+     */
+    void writeOrdersFile(LocalDate orderDate, Collection<Order> dateOrders) throws DataPersistenceException {
+        Path filePath = getOrdersFile(orderDate).toPath();
+        if (dateOrders.isEmpty()) {
+            try {
+                Files.deleteIfExists(filePath);
+            } catch (IOException e) {
+                throw new DataPersistenceException("Could not delete orders file " + filePath.getFileName(), e);
+            }
+            return;
+        }
+        Path tempPath = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try {
+            try ( FileOutputStream fileOut = new FileOutputStream(tempPath.toFile());
+                     BufferedWriter out = new BufferedWriter(new OutputStreamWriter(fileOut, StandardCharsets.UTF_8))) {
+                // print header on file - print only once
+                out.write(ordersHeader);
+                out.newLine();
+                for (Order order : dateOrders) {
+                    out.write(marshallOrder(order));
+                    out.newLine();
+                }
+                out.flush();
+                // file content is on disk before it replaces the orders file
+                fileOut.getFD().sync();
+            }
+            Files.move(tempPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException deleteError) {
+                e.addSuppressed(deleteError);
+            }
+            throw new DataPersistenceException(
+                    "Could not save orders data.", e);
+        }
+    }
+
+    /**
+     * writes orders of all dates into export file with order date added to
+     * each record. orders are asked for one date at a time so a dao does not
+     * need all orders in memory, export file is closed even when reading a
+     * date fails
+     *
+     * @param exportFile file to write orders into
+     * @param orderDates dates to export in the order they are written
+     * @param dateOrdersReader gives orders of a date in order number order
+     * @throws DataPersistenceException
+     */
+    void exportOrders(String exportFile, Iterable<LocalDate> orderDates, DateOrdersReader dateOrdersReader) throws DataPersistenceException {
+        try ( BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(exportFile), StandardCharsets.UTF_8))) {
+            // print file header
+            out.write(ordersHeader + ",OrderDate");
+            out.newLine();
+            for (LocalDate orderDate : orderDates) {
+                for (Order order : dateOrdersReader.readDateOrders(orderDate)) {
+                    out.write(marshallOrder(order) + delimiter + order.getOrderDate());
+                    out.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new DataPersistenceException(
+                    "Could not export orders data.", e);
+        }
+    }
+
+    /**
+     * syncs orders folder so files moved into it and files deleted from it are
+     * on disk. some systems can not open a folder for syncing, renames are
+     * already durable there
+     *
+     * @throws DataPersistenceException
+     */
+    void syncOrdersFolder() throws DataPersistenceException {
+        try ( FileChannel folder = FileChannel.open(Paths.get(ordersFile), StandardOpenOption.READ)) {
+            folder.force(true);
+        } catch (AccessDeniedException e) {
+            // folders can not be opened as files on windows
+        } catch (IOException e) {
+            throw new DataPersistenceException("Could not sync orders folder.", e);
+        }
+    }
+
+    /**
+     * creates reader for records written with orders delimiter
+     *
+     * @param content records to read
+     * @return record reader
+     */
+    DelimitedRecordReader newReader(ByteBuffer content) {
+        return new DelimitedRecordReader(content, delimiter.charAt(0));
+    }
+
+    /**
+     * creates order object from next record of orders file, fields are parsed
+     * directly from file bytes in a single pass
+     *
+     * @param reader reader positioned at start of order record
+     * @param orderDate date of orders file
+     * @return Order object
+     */
+    Order unmarshallOrder(DelimitedRecordReader reader, LocalDate orderDate) {
+        // index 0 - OrderNumber
+        int orderNumber = reader.nextInt();
+        // index 1 - CustomerName
+        // / is written in place of comma to prevent program from crashing when name has a value similiar to delimiter
+        String customerName = reader.nextString('/', ',');
+        // index 2 - State, shared between orders of same state
+        String state = reader.nextPooledString();
+        // index 3 - TaxRate
+        BigDecimal taxRate = reader.nextDecimal();
+        // index 4 - ProductType, shared between orders of same product
+        String productType = reader.nextPooledString();
+        // index 5 - Area
+        BigDecimal area = reader.nextDecimal();
+        // index 6 - CostPerSquareFoot
+        BigDecimal costPerSquareFoot = reader.nextDecimal();
+        // index 7 - LaborCostPerSquareFoot
+        BigDecimal laborCostPerSquareFoot = reader.nextDecimal();
+        // index 8 - MaterialCost
+        BigDecimal materialCost = reader.nextDecimal();
+        // index 9 - LaborCost
+        BigDecimal laborCost = reader.nextDecimal();
+        // index 10 - Tax
+        BigDecimal tax = reader.nextDecimal();
+        // index 11 - Total
+        BigDecimal total = reader.nextDecimal();
+        reader.endRecord();
+        return new Order(orderDate, orderNumber, customerName, state, taxRate, productType, area,
+                costPerSquareFoot, laborCostPerSquareFoot, materialCost, laborCost, tax, total);
+    }
+
+    /**
+     * creates string from order object
+     *
+     * @param order order object
+     * @return string has order object data
+     */
+    String marshallOrder(Order order) {
+        // create String to represnt order object
+        String orderAsText = order.getOrderNumber() + delimiter;
+        // checks if name has a value similair to delimiter replace it with /
+        // this prevents program from crashing when name has comma
+        if (order.getCustomerName().contains(",")) {
+            orderAsText += order.getCustomerName().replace(",", "/") + delimiter;
+        } else {
+            orderAsText += order.getCustomerName() + delimiter;
+        }
+        orderAsText += order.getState() + delimiter;
+        orderAsText += order.getTaxRate() + delimiter;
+        orderAsText += order.getProductType() + delimiter;
+        orderAsText += order.getArea() + delimiter;
+        orderAsText += order.getCostPerSquareFoot() + delimiter;
+        orderAsText += order.getLaborCostPerSquareFoot() + delimiter;
+        orderAsText += order.getMaterialCost() + delimiter;
+        orderAsText += order.getLaborCost() + delimiter;
+        orderAsText += order.getTax() + delimiter;
+        orderAsText += order.getTotal();
+        // order object as string
+        return orderAsText;
+    }
+
+    /**
+     * checks if file name follows orders file name pattern, other files such as
+     * orders journal are skipped
+     *
+     * @param fileName file name to check
+     * @return true if file holds orders of a date
+     */
+    private boolean isOrdersFileName(String fileName) {
+        return fileName.startsWith("Orders_") && fileName.endsWith(".txt");
+    }
+
+    /**
+     * gives orders of a single date while exporting
+     */
+    @FunctionalInterface
+    interface DateOrdersReader {
+
+        List<Order> readDateOrders(LocalDate orderDate) throws DataPersistenceException;
+    }
+}
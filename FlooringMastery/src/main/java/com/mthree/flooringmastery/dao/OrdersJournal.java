@@ -0,0 +1,46 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.util.List;
+
+/**
+ * collection of methods to handle append only journal of orders changes made
+ * since orders were last saved
+ *
+ * @author beshoy
+ */
+public interface OrdersJournal {
+
+    /**
+     * appends entry to journal and waits until it is durable
+     *
+     * @param entry journal entry, must not contain line breaks
+     * @throws DataPersistenceException
+     */
+    public void append(String entry) throws DataPersistenceException;
+
+    /**
+     * reads all complete entries in the order they were appended
+     *
+     * @return list of journal entries
+     * @throws DataPersistenceException
+     */
+    public List<String> readEntries() throws DataPersistenceException;
+
+    /**
+     * removes all entries, called once changes are saved to orders files
+     *
+     * @throws DataPersistenceException
+     */
+    public void clear() throws DataPersistenceException;
+
+    /**
+     * releases journal file
+     *
+     * @throws DataPersistenceException
+     */
+    public void close() throws DataPersistenceException;
+
+}
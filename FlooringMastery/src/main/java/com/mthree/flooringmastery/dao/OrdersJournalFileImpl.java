@@ -0,0 +1,236 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * implements OrdersJournal using append only text file. entries appended
+ * within the same commit window are written and synced to disk together, so
+ * callers share one fsync instead of paying one each
+ *
+ * @author beshoy
+ */
+public class OrdersJournalFileImpl implements OrdersJournal {
+
+    private String journalFile;
+    // time first caller waits for other entries before syncing the batch
+    private long commitWindowMillis;
+    private FileChannel channel;
+    // entries waiting to be written, guarded by this
+    private List<String> pendingEntries = new ArrayList<>();
+    // number of entries appended and number of entries synced, guarded by this
+    private long appendedCount;
+    private long durableCount;
+    // true when a caller is already waiting to write pending entries
+    private boolean commitScheduled;
+    // first write error, journal can not be trusted after it
+    private IOException failure;
+    // keeps batches written in the order they were taken
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public OrdersJournalFileImpl() {
+    }
+
+    public OrdersJournalFileImpl(String journalFile, long commitWindowMillis) {
+        this.journalFile = journalFile;
+        this.commitWindowMillis = commitWindowMillis;
+    }
+
+    @Override
+    public void append(String entry) throws DataPersistenceException {
+        long entryNumber;
+        boolean leader;
+        synchronized (this) {
+            checkFailure();
+            pendingEntries.add(entry);
+            entryNumber = ++appendedCount;
+            // first caller of a batch commits it, others wait for it
+            leader = !commitScheduled;
+            commitScheduled = true;
+        }
+        if (leader) {
+            waitForCommitWindow();
+            commitPendingEntries();
+        }
+        awaitDurable(entryNumber);
+    }
+
+    @Override
+    public List<String> readEntries() throws DataPersistenceException {
+        Path journalPath = Paths.get(journalFile);
+        List<String> entries = new ArrayList<>();
+        if (!Files.exists(journalPath)) {
+            return entries;
+        }
+        byte[] content;
+        try {
+            content = Files.readAllBytes(journalPath);
+        } catch (IOException e) {
+            throw new DataPersistenceException("Could not read orders journal.", e);
+        }
+        // only entries ending with line break are complete, last entry may be cut by a crash
+        int start = 0;
+        for (int i = 0; i < content.length; i++) {
+            if (content[i] == '\n') {
+                if (i > start) {
+                    entries.add(new String(content, start, i - start, StandardCharsets.UTF_8));
+                }
+                start = i + 1;
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public void clear() throws DataPersistenceException {
+        writeLock.lock();
+        try {
+            synchronized (this) {
+                checkFailure();
+            }
+            getChannel().truncate(0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new DataPersistenceException("Could not clear orders journal.", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws DataPersistenceException {
+        writeLock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            throw new DataPersistenceException("Could not close orders journal.", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * gives other callers a chance to add their entries to the batch
+     */
+    private void waitForCommitWindow() {
+        if (commitWindowMillis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(commitWindowMillis);
+        } catch (InterruptedException ex) {
+            // commit right away, waiting callers still need their entries synced
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * writes all pending entries and syncs them to disk with a single force
+     */
+    private void commitPendingEntries() {
+        writeLock.lock();
+        try {
+            List<String> batch;
+            long batchEnd;
+            synchronized (this) {
+                batch = pendingEntries;
+                batchEnd = appendedCount;
+                pendingEntries = new ArrayList<>();
+                // entries appended from now on need a new commit
+                commitScheduled = false;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            IOException writeFailure = null;
+            try {
+                ByteArrayOutputStream batchBytes = new ByteArrayOutputStream();
+                for (String entry : batch) {
+                    batchBytes.write(entry.getBytes(StandardCharsets.UTF_8));
+                    batchBytes.write('\n');
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(batchBytes.toByteArray());
+                FileChannel journalChannel = getChannel();
+                while (buffer.hasRemaining()) {
+                    journalChannel.write(buffer);
+                }
+                journalChannel.force(false);
+            } catch (IOException e) {
+                writeFailure = e;
+            }
+            synchronized (this) {
+                if (writeFailure != null && failure == null) {
+                    failure = writeFailure;
+                } else if (writeFailure == null) {
+                    durableCount = batchEnd;
+                }
+                notifyAll();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * waits until entry is synced to disk
+     *
+     * @param entryNumber number of entry to wait for
+     * @throws DataPersistenceException
+     */
+    private synchronized void awaitDurable(long entryNumber) throws DataPersistenceException {
+        boolean interrupted = false;
+        while (durableCount < entryNumber) {
+            checkFailure();
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                // entry is already queued, keep waiting so caller knows it is durable
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * throws exception if an earlier write failed
+     *
+     * @throws DataPersistenceException
+     */
+    private void checkFailure() throws DataPersistenceException {
+        if (failure != null) {
+            throw new DataPersistenceException("Could not write orders journal.", failure);
+        }
+    }
+
+    /**
+     * opens journal file on first use, must be called holding write lock
+     *
+     * @return channel appending to journal file
+     * @throws IOException
+     */
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(Paths.get(journalFile), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * reads and writes compact binary copy of orders files used to start without
+ * parsing them. orders are kept in one section per orders file together with
+ * size and last modified time the file had when it was read, so only files
+ * changed since then have to be parsed. money fields are stored as fixed width
+ * unscaled long and scale, state and product codes are stored once in a
+ * dictionary and orders refer to them by index
+ *
+ * @author beshoy
+ */
+class OrdersSnapshot {
+
+    // "FMS2" - flooring mastery snapshot version 2
+    private static final int MAGIC = 0x464D5332;
+
+    private final Path snapshotPath;
+
+    /**
+     * creates snapshot stored in given file
+     *
+     * @param snapshotPath snapshot file
+     */
+    OrdersSnapshot(Path snapshotPath) {
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * reads orders of files that have not changed since snapshot was written
+     *
+     * @param fileVersions current version of each orders file by file name
+     * @return orders by file name, files that changed or are not in snapshot
+     * are left out
+     * @throws IOException if snapshot can not be read or is not valid
+     */
+    Map<String, List<Order>> read(Map<String, FileVersion> fileVersions) throws IOException {
+        if (!Files.isRegularFile(snapshotPath)) {
+            return new HashMap<>();
+        }
+        // snapshot is read into a heap array and not mapped because it is replaced when orders change
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshotPath));
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("not an orders snapshot: " + snapshotPath);
+        }
+        // dictionary of state and product codes
+        String[] dictionary = new String[buffer.getInt()];
+        for (int i = 0; i < dictionary.length; i++) {
+            dictionary[i] = getString(buffer);
+        }
+        Map<String, List<Order>> filesOrders = new HashMap<>();
+        int filesCount = buffer.getInt();
+        for (int i = 0; i < filesCount; i++) {
+            String fileName = getString(buffer);
+            FileVersion snapshotVersion = FileVersion.of(FileTime.from(buffer.getLong(), TimeUnit.NANOSECONDS), buffer.getLong());
+            int ordersCount = buffer.getInt();
+            // orders of changed files are still parsed to get to the next section
+            List<Order> fileOrders = new ArrayList<>(ordersCount);
+            for (int j = 0; j < ordersCount; j++) {
+                fileOrders.add(getOrder(buffer, dictionary));
+            }
+            if (snapshotVersion.equals(fileVersions.get(fileName))) {
+                filesOrders.put(fileName, fileOrders);
+            }
+        }
+        return filesOrders;
+    }
+
+    /**
+     * writes orders of each orders file into snapshot file, file is replaced
+     * only once it is fully written and synced
+     *
+     * @param fileVersions version of each orders file by file name, taken
+     * before the file was read
+     * @param filesOrders orders read from each file by file name
+     * @throws IOException if snapshot can not be written or a value does not
+     * fit the binary format
+     */
+    void write(Map<String, FileVersion> fileVersions, Map<String, List<Order>> filesOrders) throws IOException {
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        Map<String, Integer> dictionaryIndex = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        for (List<Order> fileOrders : filesOrders.values()) {
+            for (Order order : fileOrders) {
+                addToDictionary(order.getState(), dictionaryIndex, dictionary);
+                addToDictionary(order.getProductType(), dictionaryIndex, dictionary);
+            }
+        }
+        try ( FileOutputStream fileOut = new FileOutputStream(tempPath.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(dictionary.size());
+            for (String value : dictionary) {
+                putString(out, value);
+            }
+            out.writeInt(filesOrders.size());
+            for (Map.Entry<String, List<Order>> fileOrders : filesOrders.entrySet()) {
+                FileVersion fileVersion = fileVersions.get(fileOrders.getKey());
+                putString(out, fileOrders.getKey());
+                out.writeLong(fileVersion.getLastModified().to(TimeUnit.NANOSECONDS));
+                out.writeLong(fileVersion.getSize());
+                out.writeInt(fileOrders.getValue().size());
+                for (Order order : fileOrders.getValue()) {
+                    putOrder(out, order, dictionaryIndex);
+                }
+            }
+            out.flush();
+            // snapshot is on disk before it replaces the old one
+            fileOut.getFD().sync();
+        } catch (IOException | ArithmeticException e) {
+            Files.deleteIfExists(tempPath);
+            throw e instanceof IOException ? (IOException) e : new IOException("order value does not fit snapshot", e);
+        }
+        Files.move(tempPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void putOrder(DataOutputStream out, Order order, Map<String, Integer> dictionaryIndex) throws IOException {
+        out.writeInt(order.getOrderNumber());
+        out.writeInt((int) order.getOrderDate().toEpochDay());
+        putString(out, order.getCustomerName());
+        out.writeShort(dictionaryIndex.get(order.getState()));
+        out.writeShort(dictionaryIndex.get(order.getProductType()));
+        putDecimal(out, order.getTaxRate());
+        putDecimal(out, order.getArea());
+        putDecimal(out, order.getCostPerSquareFoot());
+        putDecimal(out, order.getLaborCostPerSquareFoot());
+        putDecimal(out, order.getMaterialCost());
+        putDecimal(out, order.getLaborCost());
+        putDecimal(out, order.getTax());
+        putDecimal(out, order.getTotal());
+    }
+
+    private Order getOrder(ByteBuffer buffer, String[] dictionary) {
+        int orderNumber = buffer.getInt();
+        LocalDate orderDate = LocalDate.ofEpochDay(buffer.getInt());
+        String customerName = getString(buffer);
+        String state = dictionary[buffer.getShort()];
+        String productType = dictionary[buffer.getShort()];
+        return new Order(orderDate, orderNumber, customerName, state, getDecimal(buffer), productType,
+                getDecimal(buffer), getDecimal(buffer), getDecimal(buffer), getDecimal(buffer),
+                getDecimal(buffer), getDecimal(buffer), getDecimal(buffer));
+    }
+
+    private void addToDictionary(String value, Map<String, Integer> dictionaryIndex, List<String> dictionary) throws IOException {
+        if (!dictionaryIndex.containsKey(value)) {
+            if (dictionary.size() > Short.MAX_VALUE) {
+                throw new IOException("too many states and products for snapshot dictionary");
+            }
+            dictionaryIndex.put(value, dictionary.size());
+            dictionary.add(value);
+        }
+    }
+
+    private void putString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * writes decimal as unscaled long followed by scale so value and scale are
+     * restored exactly
+     *
+     * @param out snapshot output
+     * @param value decimal value
+     * @throws IOException
+     */
+    private void putDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE) {
+            throw new ArithmeticException("scale out of range: " + value);
+        }
+        out.writeLong(value.unscaledValue().longValueExact());
+        out.writeByte(value.scale());
+    }
+
+    private BigDecimal getDecimal(ByteBuffer buffer) {
+        long unscaled = buffer.getLong();
+        return BigDecimal.valueOf(unscaled, buffer.get());
+    }
+}
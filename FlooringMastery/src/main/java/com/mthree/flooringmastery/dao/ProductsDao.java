@@ -44,4 +44,12 @@ public interface ProductsDao {
      */
     public List<Product> getAllProducts() throws DataPersistenceException;
 
+    /**
+     * gets products as they were on last load that found file changed, use it to
+     * read more than one product from the same load
+     *
+     * @return read only snapshot of products
+     */
+    public ReferenceDataSnapshot<Product> getProductsSnapshot();
+
 }
@@ -11,7 +11,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -23,21 +24,45 @@ import java.util.Scanner;
  */
 public class ProductsDaoFileImpl implements ProductsDao {
 
-    private Map<String, Product> products;
+    // replaced by a new snapshot on every load that finds file changed
+    private volatile ReferenceDataSnapshot<Product> products = ReferenceDataSnapshot.empty();
     private String productsFile;
     private String delimiter;
 
     public ProductsDaoFileImpl() {
     }
 
-    public ProductsDaoFileImpl(Map<String, Product> products, String productsFile, String delimiter) {
-        this.products = products;
+    public ProductsDaoFileImpl(String productsFile, String delimiter) {
         this.productsFile = productsFile;
         this.delimiter = delimiter;
     }
 
     @Override
-    public void loadProducts() throws DataPersistenceException {
+    public synchronized void loadProducts() throws DataPersistenceException {
+        FileVersion fileVersion;
+        try {
+            fileVersion = FileVersion.of(Paths.get(productsFile));
+        } catch (IOException e) {
+            throw new DataPersistenceException(
+                    "Could not load products data into memory.", e);
+        }
+        // file did not change since last load, products in memory are up to date
+        if (fileVersion.equals(products.getFileVersion())) {
+            return;
+        }
+        // products are read into a new snapshot and swapped in so readers never see a half loaded file
+        LinkedHashMap<String, Product> loadedProducts = new LinkedHashMap<>();
+        loadScannedProducts(loadedProducts);
+        products = new ReferenceDataSnapshot<>(products.getVersion() + 1, fileVersion, loadedProducts);
+    }
+
+    /**
+     * loads products by reading products file line by line
+     *
+     * @param loadedProducts map to put products into
+     * @throws DataPersistenceException
+     */
+    private void loadScannedProducts(Map<String, Product> loadedProducts) throws DataPersistenceException {
         Scanner scanner;
         try {
             // Create Scanner for reading the file
@@ -61,7 +86,7 @@ public class ProductsDaoFileImpl implements ProductsDao {
             // unmarshall the line into a product
             currentProduct = unmarshallProduct(currentLine);
             // Put product into the map using product type
-            products.put(currentProduct.getProductType(), currentProduct);
+            loadedProducts.put(currentProduct.getProductType(), currentProduct);
         }
         // close scanner
         scanner.close();
@@ -78,7 +103,7 @@ public class ProductsDaoFileImpl implements ProductsDao {
                     "Could not save products data.", e);
         }
         // create list of products objects to be wrriten to the file
-        List<Product> productsList = new ArrayList(products.values());
+        List<Product> productsList = products.getItems();
         // write each product in the list
         productsList.stream().forEach((product) -> {
             String productAsText = marshallProduct(product);
@@ -97,7 +122,12 @@ public class ProductsDaoFileImpl implements ProductsDao {
 
     @Override
     public List<Product> getAllProducts() throws DataPersistenceException {
-        return new ArrayList<Product>(products.values());
+        return products.getItems();
+    }
+
+    @Override
+    public ReferenceDataSnapshot<Product> getProductsSnapshot() {
+        return products;
     }
 
     /**
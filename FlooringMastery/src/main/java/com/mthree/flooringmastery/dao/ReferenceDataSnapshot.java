@@ -0,0 +1,82 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * read only copy of a reference data file (products or taxes) as it was on one
+ * load. lists are built once in file order and handed out as they are, a new
+ * snapshot with a higher version replaces it when the file changes
+ *
+ * @author beshoy
+ * @param <T> type of items in file
+ */
+public final class ReferenceDataSnapshot<T> {
+
+    private final long version;
+    private final FileVersion fileVersion;
+    private final Map<String, T> itemsByKey;
+    private final List<T> items;
+    private final List<String> keys;
+
+    ReferenceDataSnapshot(long version, FileVersion fileVersion, LinkedHashMap<String, T> loadedItems) {
+        this.version = version;
+        this.fileVersion = fileVersion;
+        this.itemsByKey = Collections.unmodifiableMap(loadedItems);
+        this.items = List.copyOf(loadedItems.values());
+        this.keys = List.copyOf(loadedItems.keySet());
+    }
+
+    /**
+     * creates snapshot with no items, used before file is loaded
+     *
+     * @param <T> type of items in file
+     * @return empty snapshot with version 0
+     */
+    static <T> ReferenceDataSnapshot<T> empty() {
+        return new ReferenceDataSnapshot<>(0, null, new LinkedHashMap<>());
+    }
+
+    /**
+     * @return number of loads that changed data, 0 before first load
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return version of file this snapshot was read from, null if empty
+     */
+    FileVersion getFileVersion() {
+        return fileVersion;
+    }
+
+    /**
+     * gets item by its key
+     *
+     * @param key product type or state abbreviation
+     * @return item or null if there is no item with that key
+     */
+    public T get(String key) {
+        return itemsByKey.get(key);
+    }
+
+    /**
+     * @return unmodifiable list of items in file order
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return unmodifiable list of keys in file order
+     */
+    public List<String> getKeys() {
+        return keys;
+    }
+}
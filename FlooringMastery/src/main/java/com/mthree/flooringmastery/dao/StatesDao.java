@@ -53,4 +53,12 @@ public interface StatesDao {
      */
     public List<String> getAllStatesCodes() throws DataPersistenceException;
 
+    /**
+     * gets states as they were on last load that found file changed, use it to
+     * read more than one state from the same load
+     *
+     * @return read only snapshot of states
+     */
+    public ReferenceDataSnapshot<State> getStatesSnapshot();
+
 }
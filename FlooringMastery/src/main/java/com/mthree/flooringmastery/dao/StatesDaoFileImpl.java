@@ -11,7 +11,8 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
@@ -23,21 +24,45 @@ import java.util.Scanner;
  */
 public class StatesDaoFileImpl implements StatesDao {
 
-    private Map<String, State> states;
+    // replaced by a new snapshot on every load that finds file changed
+    private volatile ReferenceDataSnapshot<State> states = ReferenceDataSnapshot.empty();
     private String statesFile;
     private String delimiter;
 
     public StatesDaoFileImpl() {
     }
 
-    public StatesDaoFileImpl(Map<String, State> states, String statesFile, String delimiter) {
-        this.states = states;
+    public StatesDaoFileImpl(String statesFile, String delimiter) {
         this.statesFile = statesFile;
         this.delimiter = delimiter;
     }
 
     @Override
-    public void loadStates() throws DataPersistenceException {
+    public synchronized void loadStates() throws DataPersistenceException {
+        FileVersion fileVersion;
+        try {
+            fileVersion = FileVersion.of(Paths.get(statesFile));
+        } catch (IOException e) {
+            throw new DataPersistenceException(
+                    "Could not load states data into memory.", e);
+        }
+        // file did not change since last load, states in memory are up to date
+        if (fileVersion.equals(states.getFileVersion())) {
+            return;
+        }
+        // states are read into a new snapshot and swapped in so readers never see a half loaded file
+        LinkedHashMap<String, State> loadedStates = new LinkedHashMap<>();
+        loadScannedStates(loadedStates);
+        states = new ReferenceDataSnapshot<>(states.getVersion() + 1, fileVersion, loadedStates);
+    }
+
+    /**
+     * loads states by reading states file line by line
+     *
+     * @param loadedStates map to put states into
+     * @throws DataPersistenceException
+     */
+    private void loadScannedStates(Map<String, State> loadedStates) throws DataPersistenceException {
         Scanner scanner;
         try {
             // Create Scanner for reading the file
@@ -61,7 +86,7 @@ public class StatesDaoFileImpl implements StatesDao {
             // unmarshall the line into a state 
             currentState = unmarshallState(currentLine);
             // Put state into the map using state abbreviation as key
-            states.put(currentState.getStateAbbreviation(), currentState);
+            loadedStates.put(currentState.getStateAbbreviation(), currentState);
         }
         // close scanner
         scanner.close();
@@ -78,7 +103,7 @@ public class StatesDaoFileImpl implements StatesDao {
                     "Could not save states data.", e);
         }
         // create list of states objects to be wrriten to the file
-        List<State> statesList = new ArrayList(states.values());
+        List<State> statesList = states.getItems();
         // write each object in the list
         statesList.stream().forEach((state) -> {
             String stateAsText = marshallState(state);
@@ -97,13 +122,18 @@ public class StatesDaoFileImpl implements StatesDao {
 
     @Override
     public List<State> getAllStates() throws DataPersistenceException {
-        return new ArrayList<State>(states.values());
+        return states.getItems();
+    }
+
+    @Override
+    public ReferenceDataSnapshot<State> getStatesSnapshot() {
+        return states;
     }
 
     @Override
     public List<String> getAllStatesCodes() throws DataPersistenceException {
-        // return list of all states codes (keyset) 
-        return new ArrayList<String>(states.keySet());
+        // return list of all states codes (keyset)
+        return states.getKeys();
     }
 
     /**
@@ -0,0 +1,108 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * money amounts kept as long number of cents, used where many orders are
+ * priced or summed so no BigDecimal is created per step. rounding is half up
+ * like BigDecimal.setScale(2, RoundingMode.HALF_UP). methods throw
+ * ArithmeticException instead of overflowing, callers can then fall back to
+ * BigDecimal
+ *
+ * @author beshoy
+ */
+public final class Money {
+
+    // number of decimals of a money amount
+    public static final int SCALE = 2;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private Money() {
+    }
+
+    /**
+     * converts money amount to cents
+     *
+     * @param amount amount with at most 2 decimals
+     * @return amount in cents
+     * @throws ArithmeticException if amount has more decimals or does not fit
+     */
+    public static long toCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).longValueExact();
+    }
+
+    /**
+     * converts cents to money amount
+     *
+     * @param cents amount in cents
+     * @return amount with 2 decimals
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * adds two amounts in cents
+     *
+     * @param cents first amount
+     * @param otherCents second amount
+     * @return sum in cents
+     * @throws ArithmeticException on overflow
+     */
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+
+    /**
+     * multiplies two decimal numbers given as unscaled value and scale, same
+     * as BigDecimal unscaledValue() and scale(), and rounds product half up to
+     * cents
+     *
+     * @param unscaled first number without decimal point
+     * @param scale decimals of first number
+     * @param otherUnscaled second number without decimal point
+     * @param otherScale decimals of second number
+     * @return product in cents
+     * @throws ArithmeticException on overflow
+     */
+    public static long multiply(long unscaled, int scale, long otherUnscaled, int otherScale) {
+        long product = Math.multiplyExact(unscaled, otherUnscaled);
+        // product has scale + otherScale decimals, cents have 2
+        int extraDecimals = scale + otherScale - SCALE;
+        if (extraDecimals <= 0) {
+            return Math.multiplyExact(product, powerOfTen(-extraDecimals));
+        }
+        return divideHalfUp(product, powerOfTen(extraDecimals));
+    }
+
+    /**
+     * divides rounding half up, away from zero when remainder is exactly half
+     */
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = Math.abs(dividend % divisor);
+        // same as remainder * 2 >= divisor without overflowing
+        if (remainder >= divisor - remainder) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("10^" + exponent + " does not fit a long");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+}
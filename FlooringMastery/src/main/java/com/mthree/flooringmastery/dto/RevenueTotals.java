@@ -0,0 +1,137 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * represents summed orders of one state and product in a day or month
+ * @author beshoy
+ */
+public class RevenueTotals {
+
+    // the day, or first day of the month for monthly totals
+    private final LocalDate periodStart;
+    private final String state;
+    private final String productType;
+    private final long orderCount;
+    private final BigDecimal area;
+    private final BigDecimal materialCost;
+    private final BigDecimal laborCost;
+    private final BigDecimal tax;
+    private final BigDecimal total;
+
+    public RevenueTotals(LocalDate periodStart, String state, String productType, long orderCount, BigDecimal area, BigDecimal materialCost, BigDecimal laborCost, BigDecimal tax, BigDecimal total) {
+        this.periodStart = periodStart;
+        this.state = state;
+        this.productType = productType;
+        this.orderCount = orderCount;
+        this.area = area;
+        this.materialCost = materialCost;
+        this.laborCost = laborCost;
+        this.tax = tax;
+        this.total = total;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getProductType() {
+        return productType;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public BigDecimal getArea() {
+        return area;
+    }
+
+    public BigDecimal getMaterialCost() {
+        return materialCost;
+    }
+
+    public BigDecimal getLaborCost() {
+        return laborCost;
+    }
+
+    public BigDecimal getTax() {
+        return tax;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 41 * hash + Objects.hashCode(this.periodStart);
+        hash = 41 * hash + Objects.hashCode(this.state);
+        hash = 41 * hash + Objects.hashCode(this.productType);
+        hash = 41 * hash + Long.hashCode(this.orderCount);
+        hash = 41 * hash + Objects.hashCode(this.area);
+        hash = 41 * hash + Objects.hashCode(this.materialCost);
+        hash = 41 * hash + Objects.hashCode(this.laborCost);
+        hash = 41 * hash + Objects.hashCode(this.tax);
+        hash = 41 * hash + Objects.hashCode(this.total);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final RevenueTotals other = (RevenueTotals) obj;
+        if (this.orderCount != other.orderCount) {
+            return false;
+        }
+        if (!Objects.equals(this.periodStart, other.periodStart)) {
+            return false;
+        }
+        if (!Objects.equals(this.state, other.state)) {
+            return false;
+        }
+        if (!Objects.equals(this.productType, other.productType)) {
+            return false;
+        }
+        if (!Objects.equals(this.area, other.area)) {
+            return false;
+        }
+        if (!Objects.equals(this.materialCost, other.materialCost)) {
+            return false;
+        }
+        if (!Objects.equals(this.laborCost, other.laborCost)) {
+            return false;
+        }
+        if (!Objects.equals(this.tax, other.tax)) {
+            return false;
+        }
+        if (!Objects.equals(this.total, other.total)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "RevenueTotals{" + "periodStart=" + periodStart + ", state=" + state + ", productType=" + productType + ", orderCount=" + orderCount + ", area=" + area + ", materialCost=" + materialCost + ", laborCost=" + laborCost + ", tax=" + tax + ", total=" + total + '}';
+    }
+
+}
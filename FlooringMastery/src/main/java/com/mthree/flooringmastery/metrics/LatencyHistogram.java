@@ -0,0 +1,107 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * records latencies into fixed log linear buckets, every power of two range is
+ * split into equal sub buckets so percentiles are within 1/16 of the real
+ * value. recording only increments counters and never allocates, so it can be
+ * used from many threads on hot paths
+ *
+ * @author beshoy
+ */
+public class LatencyHistogram {
+
+    // each power of two range is split into 2^SUB_BUCKET_BITS buckets
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * records one latency
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(getBucket(value));
+        maxNanos.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * gets latency below which given share of recorded latencies fall
+     *
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of bucket holding percentile in nanoseconds, 0 if
+     * nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // bucket bound may be above max when few values were recorded
+                return Math.min(getBucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public long getMax() {
+        return maxNanos.get();
+    }
+
+    /**
+     * clears all recorded latencies
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        maxNanos.set(0);
+    }
+
+    /**
+     * values below 2^SUB_BUCKET_BITS get a bucket each, larger values are
+     * bucketed by highest bit and the next SUB_BUCKET_BITS bits
+     *
+     * @param value latency in nanoseconds
+     * @return bucket index
+     */
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> exponent) - SUB_BUCKETS;
+        return (exponent + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long getBucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        long upperBound = ((subBucket + 1) << exponent) - 1;
+        // last bucket ends at largest long
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * represents operation statistics at a point in time, published over JMX as
+ * composite data
+ *
+ * @author beshoy
+ */
+public class OperationSnapshot {
+
+    private final String name;
+    private final long count;
+    private final long errorCount;
+    private final long p50Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+
+    @ConstructorProperties({"name", "count", "errorCount", "p50Micros", "p99Micros", "maxMicros"})
+    public OperationSnapshot(String name, long count, long errorCount, long p50Micros, long p99Micros, long maxMicros) {
+        this.name = name;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "OperationSnapshot{" + "name=" + name + ", count=" + count + ", errorCount=" + errorCount
+                + ", p50Micros=" + p50Micros + ", p99Micros=" + p99Micros + ", maxMicros=" + maxMicros + '}';
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * counts calls, failed calls and latencies of a single operation
+ *
+ * @author beshoy
+ */
+public class OperationStats {
+
+    private final String name;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * records one call of operation
+     *
+     * @param nanos call latency in nanoseconds
+     * @param failed true if call threw an exception
+     */
+    public void record(long nanos, boolean failed) {
+        count.increment();
+        if (failed) {
+            errorCount.increment();
+        }
+        latencies.record(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * clears all recorded calls
+     */
+    public void reset() {
+        count.reset();
+        errorCount.reset();
+        latencies.reset();
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * keeps statistics of instrumented operations and publishes them as a
+ * platform MBean. interfaces are instrumented with a proxy that times every
+ * call, operations are looked up once when proxy is made so a call only
+ * reads the clock twice and updates counters
+ *
+ * @author beshoy
+ */
+public class OperationsMetrics implements OperationsMetricsMXBean {
+
+    private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    private ObjectName objectName;
+
+    public OperationsMetrics() {
+    }
+
+    public OperationsMetrics(String objectName) throws JMException {
+        this.objectName = new ObjectName(objectName);
+    }
+
+    /**
+     * wraps object so every call through given interface is timed, used as
+     * spring factory method
+     *
+     * @param <T> interface type
+     * @param type interface to instrument
+     * @param target object to call
+     * @return proxy implementing interface
+     */
+    public <T> T instrument(Class<T> type, T target) {
+        // operations of each method are found once, calls only do a map lookup
+        Map<Method, OperationStats> methodStats = new HashMap<>();
+        for (Method method : type.getMethods()) {
+            methodStats.put(method, getOperation(type.getSimpleName() + "." + method.getName()
+                    + Arrays.stream(method.getParameterTypes()).map(Class::getSimpleName).collect(Collectors.joining(",", "(", ")"))));
+        }
+        InvocationHandler handler = (proxy, method, args) -> {
+            OperationStats stats = methodStats.get(method);
+            if (stats == null) {
+                // Object methods such as toString are not timed
+                return invoke(method, target, args);
+            }
+            long startTime = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = invoke(method, target, args);
+                failed = false;
+                return result;
+            } finally {
+                stats.record(System.nanoTime() - startTime, failed);
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * gets statistics of an operation, creates them on first use
+     *
+     * @param name operation name
+     * @return operation statistics
+     */
+    public OperationStats getOperation(String name) {
+        return operations.computeIfAbsent(name, OperationStats::new);
+    }
+
+    @Override
+    public List<OperationSnapshot> getOperations() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        for (OperationStats stats : operations.values()) {
+            if (stats.getCount() > 0) {
+                LatencyHistogram latencies = stats.getLatencies();
+                snapshots.add(new OperationSnapshot(stats.getName(), stats.getCount(), stats.getErrorCount(),
+                        TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(50)),
+                        TimeUnit.NANOSECONDS.toMicros(latencies.getPercentile(99)),
+                        TimeUnit.NANOSECONDS.toMicros(latencies.getMax())));
+            }
+        }
+        snapshots.sort(Comparator.comparing(OperationSnapshot::getName));
+        return snapshots;
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(OperationStats::reset);
+    }
+
+    /**
+     * registers metrics with platform MBean server, replaces metrics registered
+     * under the same name before
+     *
+     * @throws JMException
+     */
+    public void register() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(this, objectName);
+    }
+
+    /**
+     * removes metrics from platform MBean server
+     *
+     * @throws JMException
+     */
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    /**
+     * calls method on target and rethrows exception thrown by method itself
+     */
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
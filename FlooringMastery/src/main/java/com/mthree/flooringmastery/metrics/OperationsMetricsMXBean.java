@@ -0,0 +1,27 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.metrics;
+
+import java.util.List;
+
+/**
+ * management interface publishing statistics of instrumented operations
+ *
+ * @author beshoy
+ */
+public interface OperationsMetricsMXBean {
+
+    /**
+     * gets statistics of every operation called at least once
+     *
+     * @return operations statistics sorted by operation name
+     */
+    public List<OperationSnapshot> getOperations();
+
+    /**
+     * clears statistics of all operations
+     */
+    public void reset();
+
+}
@@ -6,8 +6,11 @@ package com.mthree.flooringmastery.service;
 import com.mthree.flooringmastery.dao.DataPersistenceException;
 import com.mthree.flooringmastery.dto.Order;
 import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.RevenueTotals;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  *
@@ -32,6 +35,28 @@ public interface FlooringMasteryService {
      */
     public List<Order> getDateOrders(LocalDate dateChoice) throws DataPersistenceException, NoOrderFoundException;
 
+    /**
+     * gets list of orders from first to last chosen date
+     *
+     * @param fromDate first date
+     * @param toDate last date, included
+     * @return orders sorted by date then order number, empty if there are no
+     * orders
+     * @throws DataPersistenceException
+     */
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException;
+
+    /**
+     * streams orders from first to last chosen date one date at a time, for
+     * long ranges that should not be held in one list
+     *
+     * @param fromDate first date
+     * @param toDate last date, included
+     * @return orders sorted by date then order number
+     * @throws DataPersistenceException
+     */
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException;
+
     /**
      * saves all data from memory to external resources
      *
@@ -126,4 +151,26 @@ public interface FlooringMasteryService {
      */
     public void editOrder(Order editedOrder) throws DataPersistenceException;
 
+    /**
+     * gets totals of orders for each day, state and product in chosen days
+     *
+     * @param fromDate first day
+     * @param toDate last day, included
+     * @return totals sorted by day, state and product, empty if there are no
+     * orders
+     * @throws DataPersistenceException
+     */
+    public List<RevenueTotals> getDailyRevenue(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException;
+
+    /**
+     * gets totals of orders for each month, state and product in chosen months
+     *
+     * @param fromMonth first month
+     * @param toMonth last month, included
+     * @return totals sorted by month, state and product, empty if there are no
+     * orders
+     * @throws DataPersistenceException
+     */
+    public List<RevenueTotals> getMonthlyRevenue(YearMonth fromMonth, YearMonth toMonth) throws DataPersistenceException;
+
 }
@@ -5,17 +5,32 @@ package com.mthree.flooringmastery.service;
 
 import com.mthree.flooringmastery.dao.AuditDao;
 import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrderNumberAllocator;
+import com.mthree.flooringmastery.dao.OrderNumberAllocatorFileImpl;
 import com.mthree.flooringmastery.dao.OrdersDao;
 import com.mthree.flooringmastery.dao.ProductsDao;
+import com.mthree.flooringmastery.dao.ReferenceDataSnapshot;
 import com.mthree.flooringmastery.dao.StatesDao;
 import com.mthree.flooringmastery.dto.Order;
 import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.RevenueTotals;
 import com.mthree.flooringmastery.dto.State;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import com.mthree.flooringmastery.service.PricingTable.OrderRates;
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  *
@@ -27,20 +42,40 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService {
     private StatesDao statesDao;
     private OrdersDao ordersDao;
     private AuditDao auditsDao;
+    private OrderNumberAllocator orderNumberAllocator;
+    // built again when states or products snapshot changes
+    private volatile PricingTable pricingTable;
+    // started again on every load, days are summed from orders dao when a report needs them
+    private volatile RevenueAggregates revenueAggregates;
 
     public FlooringMasteryServiceImpl(ProductsDao productDao, StatesDao stateDao, OrdersDao orderDao, AuditDao auditDao) {
+        // order numbers are only kept in memory
+        this(productDao, stateDao, orderDao, auditDao, new OrderNumberAllocatorFileImpl());
+    }
+
+    public FlooringMasteryServiceImpl(ProductsDao productDao, StatesDao stateDao, OrdersDao orderDao, AuditDao auditDao, OrderNumberAllocator orderNumberAllocator) {
         this.productsDao = productDao;
         this.statesDao = stateDao;
         this.ordersDao = orderDao;
         this.auditsDao = auditDao;
+        this.orderNumberAllocator = orderNumberAllocator;
+        this.revenueAggregates = new RevenueAggregates(orderDao);
     }
 
     @Override
     public void loadAllData() throws DataPersistenceException {
-        // load all data into memory
-        productsDao.loadProducts();
-        statesDao.loadStates();
-        ordersDao.loadOrders();
+        // load all data into memory, files are independent so they are read at the same time
+        Map<String, DataLoad> loads = new LinkedHashMap<>();
+        loads.put("products", productsDao::loadProducts);
+        loads.put("states", statesDao::loadStates);
+        loads.put("orders", ordersDao::loadOrders);
+        Map<String, Long> loadMillis = runLoads(loads);
+        Logger.getLogger(FlooringMasteryServiceImpl.class.getName()).log(Level.FINE,
+                "loaded products in {0} ms, states in {1} ms and orders in {2} ms",
+                new Object[]{loadMillis.get("products"), loadMillis.get("states"), loadMillis.get("orders")});
+        // only order numbers are read here, orders of a day are read the first time a report needs them
+        orderNumberAllocator.seed(ordersDao.getLastOrderNumber());
+        revenueAggregates = new RevenueAggregates(ordersDao);
     }
 
     @Override
@@ -49,23 +84,37 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService {
         if (allDateOrders.isEmpty()) {
             throw new NoOrderFoundException("Sorry, no orders found for " + dateChoice);
         } else {
-            return ordersDao.getAllOrders(dateChoice);
+            return allDateOrders;
         }
     }
 
+    @Override
+    public List<Order> getOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return ordersDao.getOrders(fromDate, toDate);
+    }
+
+    @Override
+    public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return ordersDao.streamOrders(fromDate, toDate);
+    }
+
     @Override
     public void saveAllOrders() throws DataPersistenceException {
         ordersDao.saveOrders();
+        orderNumberAllocator.saveOrderNumber();
     }
 
     @Override
     public List<Product> getProductsList() throws DataPersistenceException {
+        // only reads products file again if it changed since last load
         productsDao.loadProducts();
         return productsDao.getAllProducts();
     }
 
     @Override
     public List<String> getSatesCodes() throws DataPersistenceException {
+        // picks up tax rates changed since last load
+        statesDao.loadStates();
         return statesDao.getAllStatesCodes();
     }
 
@@ -73,36 +122,34 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService {
     public Order calcualteOrder(Order order) throws DataPersistenceException {
         // create new object for calcualted order
         Order calculatedOrder = new Order();
-        // get Porudct and State information so it can be used in calculation and to fill other fiels
-        Product orderProduct = getOrderProduct(order);
-        State orderSate = getOrderState(order);
+        // get rates of order state and product so they can be used in calculation and to fill other fiels
+        OrderRates orderRates = getOrderRates(order);
 
         // add non calcuated fields to order
         calculatedOrder.setOrderDate(order.getOrderDate());
         calculatedOrder.setCustomerName(order.getCustomerName());
         calculatedOrder.setState(order.getState());
-        calculatedOrder.setTaxRate(orderSate.getTaxRate());
         calculatedOrder.setProductType(order.getProductType());
         calculatedOrder.setArea(order.getArea());
-        calculatedOrder.setCostPerSquareFoot(orderProduct.getCostPerSquareFoot());
-        calculatedOrder.setLaborCostPerSquareFoot(orderProduct.getLaborCostPerSquareFoot());
         // set calcualted fields
         // generate order number and set it to order number
         calculatedOrder.setOrderNumber(generateOrderNumber());
-        // calcualte material cost
-        calculatedOrder.setMaterialCost(calculateMaterialCost(calculatedOrder));
-        // calculate labor cost
-        calculatedOrder.setLaborCost(calculateLaborCost(calculatedOrder));
-        // calcualte tax
-        calculatedOrder.setTax(calculateTax(calculatedOrder));
-        // calcualte order total
-        calculatedOrder.setTotal(calculateOrderTotal(calculatedOrder));
+        // set rates and calcualte material cost, labor cost, tax and total
+        orderRates.price(calculatedOrder);
         return calculatedOrder;
     }
 
     @Override
     public void saveOrder(Order order) throws DataPersistenceException {
-        ordersDao.saveOrder(order);
+        RevenueAggregates aggregates = revenueAggregates;
+        aggregates.beginChange();
+        try {
+            ordersDao.saveOrder(order);
+            // new orders get numbers not used before so no totals have to be taken out
+            aggregates.add(order);
+        } finally {
+            aggregates.endChange();
+        }
         //update audit
         auditsDao.writeAuditEntry("Order Number " + order.getOrderNumber() + ", CREATED");
     }
@@ -114,7 +161,17 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService {
             throw new NoOrderFoundException("Invalid order date or number. please try again");
         } else {
             auditsDao.writeAuditEntry("Order Number " + orderToRemove.getOrderNumber() + ", REMOVED");
-            return ordersDao.removeOrder(orderToRemove);
+            RevenueAggregates aggregates = revenueAggregates;
+            aggregates.beginChange();
+            try {
+                Order removedOrder = ordersDao.removeOrder(orderToRemove);
+                if (removedOrder != null) {
+                    aggregates.remove(removedOrder);
+                }
+                return removedOrder;
+            } finally {
+                aggregates.endChange();
+            }
         }
     }
 
@@ -140,14 +197,8 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService {
 
     @Override
     public void updateOrderCalculations(Order updatedOrder) throws DataPersistenceException {
-        // 
-        updatedOrder.setTaxRate(getOrderState(updatedOrder).getTaxRate());
-        updatedOrder.setCostPerSquareFoot(getOrderProduct(updatedOrder).getCostPerSquareFoot());
-        updatedOrder.setLaborCostPerSquareFoot(getOrderProduct(updatedOrder).getLaborCostPerSquareFoot());
-        updatedOrder.setMaterialCost(calculateMaterialCost(updatedOrder));
-        updatedOrder.setLaborCost(calculateLaborCost(updatedOrder));
-        updatedOrder.setTax(calculateTax(updatedOrder));
-        updatedOrder.setTotal(calculateOrderTotal(updatedOrder));
+        // state and product rates come from the same pricing table
+        getOrderRates(updatedOrder).price(updatedOrder);
     }
 
     @Override
@@ -158,98 +209,149 @@ public class FlooringMasteryServiceImpl implements FlooringMasteryService {
 
     @Override
     public void editOrder(Order editedOrder) throws DataPersistenceException {
-        ordersDao.saveOrder(editedOrder);
+        RevenueAggregates aggregates = revenueAggregates;
+        aggregates.beginChange();
+        try {
+            // order as it is before the edit, its amounts are taken out of the totals
+            Order originalOrder = findOrder(editedOrder.getOrderDate(), editedOrder.getOrderNumber());
+            ordersDao.saveOrder(editedOrder);
+            if (originalOrder != null) {
+                aggregates.remove(originalOrder);
+            }
+            aggregates.add(editedOrder);
+        } finally {
+            aggregates.endChange();
+        }
         //update audit
         auditsDao.writeAuditEntry("Order Number " + editedOrder.getOrderNumber() + ", EDITED");
     }
 
+    @Override
+    public List<RevenueTotals> getDailyRevenue(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+        return revenueAggregates.getDailyTotals(fromDate, toDate);
+    }
+
+    @Override
+    public List<RevenueTotals> getMonthlyRevenue(YearMonth fromMonth, YearMonth toMonth) throws DataPersistenceException {
+        return revenueAggregates.getMonthlyTotals(fromMonth, toMonth);
+    }
+
     /**
-     * generates order number using last order number
+     * generates order number following last number handed out
      *
      * @return order number
      * @throws DataPersistenceException
      */
     private int generateOrderNumber() throws DataPersistenceException {
-        int lastOrderNumber = getLastOrderNumber();
-        return ++lastOrderNumber;
+        return orderNumberAllocator.nextOrderNumber();
     }
 
     /**
-     * gets last order number found in orders list
+     * gets order or null if there is no such order
      *
-     * @return
+     * @param orderDate Order date
+     * @param orderNumber Order number
+     * @return order or null
      * @throws DataPersistenceException
      */
-    private int getLastOrderNumber() throws DataPersistenceException {
-        return ordersDao.getAllOrders().stream()
-                .max(Comparator.comparing(Order::getOrderNumber)).get().getOrderNumber();
-    }
-
-    /**
-     * calculates material cost for an order
-     *
-     * @param calculatedOrder order to calculate
-     * @return order material cost
-     */
-    private BigDecimal calculateMaterialCost(Order calculatedOrder) {
-        // MaterialCost = (Area * CostPerSquareFoot)
-        return calculatedOrder.getArea().multiply(calculatedOrder.getCostPerSquareFoot()).setScale(2, RoundingMode.HALF_UP);
+    private Order findOrder(LocalDate orderDate, int orderNumber) throws DataPersistenceException {
+        try {
+            return ordersDao.getOrder(orderDate, orderNumber);
+        } catch (NoOrderFoundException ex) {
+            return null;
+        }
     }
 
     /**
-     * calculates order labor cost
+     * gets rates of order state and product, pricing table is built again
+     * first if states or products file was loaded again since it was built
      *
-     * @param calculatedOrder order to calculate
-     * @return order labor cost
+     * @param order order with state and product type set
+     * @return rates of order state and product
+     * @throws DataPersistenceException if state or product is not known
      */
-    private BigDecimal calculateLaborCost(Order calculatedOrder) {
-        // LaborCost = (Area * LaborCostPerSquareFoot)
-        return calculatedOrder.getArea().multiply(calculatedOrder.getLaborCostPerSquareFoot()).setScale(2, RoundingMode.HALF_UP);
+    private OrderRates getOrderRates(Order order) throws DataPersistenceException {
+        ReferenceDataSnapshot<State> states = statesDao.getStatesSnapshot();
+        ReferenceDataSnapshot<Product> products = productsDao.getProductsSnapshot();
+        PricingTable table = pricingTable;
+        if (table == null || !table.isBuiltFrom(states, products)) {
+            table = new PricingTable(states, products);
+            pricingTable = table;
+        }
+        OrderRates orderRates = table.getRates(order.getState(), order.getProductType());
+        if (orderRates == null) {
+            throw new DataPersistenceException("No tax rate or product price found for " + order.getState() + " and " + order.getProductType());
+        }
+        return orderRates;
     }
 
     /**
-     * calculates order tax
+     * runs loads on their own threads and stops waiting as soon as one of them
+     * fails
      *
-     * @param calculatedOrder order to calculate
-     * @return order tax
+     * @param loads loads by name
+     * @return milliseconds each load took by name
+     * @throws DataPersistenceException if any load failed, other failures that
+     * happened by then are added as suppressed
      */
-    private BigDecimal calculateTax(Order calculatedOrder) {
-        // Tax = (MaterialCost + LaborCost) * (TaxRate/100) 
-        BigDecimal materialAndLaborCost = calculatedOrder.getMaterialCost().add(calculatedOrder.getLaborCost());
-        return materialAndLaborCost.multiply(calculatedOrder.getTaxRate().divide(new BigDecimal("100"))).setScale(2, RoundingMode.HALF_UP);
+    private Map<String, Long> runLoads(Map<String, DataLoad> loads) throws DataPersistenceException {
+        ExecutorService executor = Executors.newFixedThreadPool(loads.size());
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        CompletableFuture<Void> firstFailure = new CompletableFuture<>();
+        Map<String, CompletableFuture<Long>> futures = new LinkedHashMap<>();
+        try {
+            loads.forEach((name, load) -> futures.put(name, CompletableFuture.supplyAsync(() -> {
+                long startTime = System.nanoTime();
+                try {
+                    load.load();
+                } catch (DataPersistenceException | RuntimeException ex) {
+                    failures.put(name, ex);
+                    firstFailure.complete(null);
+                }
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            }, executor)));
+            CompletableFuture.anyOf(CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])), firstFailure).get();
+        } catch (ExecutionException ex) {
+            // loads catch their own exceptions so this is not expected
+            throw new DataPersistenceException("could not load data", ex.getCause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataPersistenceException("loading data was interrupted", ex);
+        } finally {
+            // loads still running after a failure are not waited for
+            executor.shutdownNow();
+        }
+        if (!failures.isEmpty()) {
+            throw combineFailures(loads, failures);
+        }
+        Map<String, Long> loadMillis = new LinkedHashMap<>();
+        futures.forEach((name, future) -> loadMillis.put(name, future.join()));
+        return loadMillis;
     }
 
-    /**
-     * calculates total order cost
-     *
-     * @param calculatedOrder order to calculate
-     * @return total order cost
-     */
-    private BigDecimal calculateOrderTotal(Order calculatedOrder) {
-        // Total = (MaterialCost + LaborCost + Tax)
-        return calculatedOrder.getMaterialCost().add(calculatedOrder.getLaborCost()).add(calculatedOrder.getTax());
+    private DataPersistenceException combineFailures(Map<String, DataLoad> loads, Map<String, Exception> failures) {
+        List<Exception> causes = new ArrayList<>();
+        for (String name : loads.keySet()) {
+            if (failures.containsKey(name)) {
+                causes.add(failures.get(name));
+            }
+        }
+        // single failure keeps its own message so user sees the same error as before
+        if (causes.size() == 1 && causes.get(0) instanceof DataPersistenceException) {
+            return (DataPersistenceException) causes.get(0);
+        }
+        List<String> messages = new ArrayList<>();
+        causes.forEach((cause) -> messages.add(cause.getMessage()));
+        DataPersistenceException combined = new DataPersistenceException(String.join(" ", messages), causes.get(0));
+        causes.subList(1, causes.size()).forEach(combined::addSuppressed);
+        return combined;
     }
 
     /**
-     * gets order Product
-     *
-     * @param order order to find product in
-     * @return Product found in order
-     * @throws DataPersistenceException
+     * loads one data source into memory
      */
-    private Product getOrderProduct(Order order) throws DataPersistenceException {
-        return productsDao.getProduct(order.getProductType());
-    }
+    private interface DataLoad {
 
-    /**
-     * gets order State
-     *
-     * @param order order to find State in
-     * @return order State
-     * @throws DataPersistenceException
-     */
-    private State getOrderState(Order order) throws DataPersistenceException {
-        return statesDao.getState(order.getState());
+        void load() throws DataPersistenceException;
     }
-
 }
@@ -0,0 +1,157 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.service;
+
+import com.mthree.flooringmastery.dao.ReferenceDataSnapshot;
+import com.mthree.flooringmastery.dto.Money;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.State;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * rates of every state and product pair worked out once from a states and
+ * products snapshot, so pricing an order is one lookup and the arithmetic
+ *
+ * @author beshoy
+ */
+class PricingTable {
+
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+
+    private final ReferenceDataSnapshot<State> states;
+    private final ReferenceDataSnapshot<Product> products;
+    // state abbreviation -> product type -> rates
+    private final Map<String, Map<String, OrderRates>> rates = new HashMap<>();
+
+    PricingTable(ReferenceDataSnapshot<State> states, ReferenceDataSnapshot<Product> products) {
+        this.states = states;
+        this.products = products;
+        for (State state : states.getItems()) {
+            // tax rate is a percentage, divided once here instead of on every order
+            BigDecimal taxMultiplier = state.getTaxRate().divide(ONE_HUNDRED);
+            Map<String, OrderRates> stateRates = new HashMap<>();
+            for (Product product : products.getItems()) {
+                stateRates.put(product.getProductType(), new OrderRates(state.getTaxRate(), taxMultiplier,
+                        product.getCostPerSquareFoot(), product.getLaborCostPerSquareFoot()));
+            }
+            rates.put(state.getStateAbbreviation(), stateRates);
+        }
+    }
+
+    /**
+     * checks if table was built from these snapshots, a new load of either
+     * file gives a new snapshot so table has to be built again
+     *
+     * @param states current states snapshot
+     * @param products current products snapshot
+     * @return true if table is up to date
+     */
+    boolean isBuiltFrom(ReferenceDataSnapshot<State> states, ReferenceDataSnapshot<Product> products) {
+        return this.states == states && this.products == products;
+    }
+
+    /**
+     * gets rates of a state and product pair
+     *
+     * @param stateAbbreviation order state
+     * @param productType order product type
+     * @return rates or null if state or product is not known
+     */
+    OrderRates getRates(String stateAbbreviation, String productType) {
+        Map<String, OrderRates> stateRates = rates.get(stateAbbreviation);
+        return stateRates == null ? null : stateRates.get(productType);
+    }
+
+    /**
+     * tax rate and costs per square foot of one state and product
+     */
+    static class OrderRates {
+
+        private final BigDecimal taxRate;
+        private final BigDecimal taxMultiplier;
+        private final BigDecimal costPerSquareFoot;
+        private final BigDecimal laborCostPerSquareFoot;
+        // false if a rate has too many digits for a long, orders are then priced with BigDecimal
+        private final boolean fixedPoint;
+
+        private OrderRates(BigDecimal taxRate, BigDecimal taxMultiplier, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot) {
+            this.taxRate = taxRate;
+            this.taxMultiplier = taxMultiplier;
+            this.costPerSquareFoot = costPerSquareFoot;
+            this.laborCostPerSquareFoot = laborCostPerSquareFoot;
+            this.fixedPoint = fitsLong(taxMultiplier) && fitsLong(costPerSquareFoot) && fitsLong(laborCostPerSquareFoot);
+        }
+
+        /**
+         * sets rates and calculated costs of an order from its area
+         *
+         * @param order order with area set
+         */
+        void price(Order order) {
+            order.setTaxRate(taxRate);
+            order.setCostPerSquareFoot(costPerSquareFoot);
+            order.setLaborCostPerSquareFoot(laborCostPerSquareFoot);
+            if (fixedPoint && fitsLong(order.getArea())) {
+                try {
+                    priceInCents(order);
+                    return;
+                } catch (ArithmeticException ex) {
+                    // amounts too large for cents in a long, priced below with BigDecimal
+                }
+            }
+            priceWithBigDecimal(order);
+        }
+
+        /**
+         * calculates costs as long cents, gives the same amounts as
+         * priceWithBigDecimal
+         *
+         * @param order order with area set
+         * @throws ArithmeticException if an amount does not fit a long
+         */
+        private void priceInCents(Order order) {
+            BigDecimal area = order.getArea();
+            long areaUnscaled = area.unscaledValue().longValue();
+            // MaterialCost = (Area * CostPerSquareFoot)
+            long materialCost = Money.multiply(areaUnscaled, area.scale(),
+                    costPerSquareFoot.unscaledValue().longValue(), costPerSquareFoot.scale());
+            // LaborCost = (Area * LaborCostPerSquareFoot)
+            long laborCost = Money.multiply(areaUnscaled, area.scale(),
+                    laborCostPerSquareFoot.unscaledValue().longValue(), laborCostPerSquareFoot.scale());
+            // Tax = (MaterialCost + LaborCost) * (TaxRate/100)
+            long materialAndLaborCost = Money.add(materialCost, laborCost);
+            long tax = Money.multiply(materialAndLaborCost, Money.SCALE,
+                    taxMultiplier.unscaledValue().longValue(), taxMultiplier.scale());
+            // Total = (MaterialCost + LaborCost + Tax)
+            long total = Money.add(materialAndLaborCost, tax);
+            order.setMaterialCost(Money.toBigDecimal(materialCost));
+            order.setLaborCost(Money.toBigDecimal(laborCost));
+            order.setTax(Money.toBigDecimal(tax));
+            order.setTotal(Money.toBigDecimal(total));
+        }
+
+        private void priceWithBigDecimal(Order order) {
+            // MaterialCost = (Area * CostPerSquareFoot)
+            BigDecimal materialCost = order.getArea().multiply(costPerSquareFoot).setScale(2, RoundingMode.HALF_UP);
+            // LaborCost = (Area * LaborCostPerSquareFoot)
+            BigDecimal laborCost = order.getArea().multiply(laborCostPerSquareFoot).setScale(2, RoundingMode.HALF_UP);
+            // Tax = (MaterialCost + LaborCost) * (TaxRate/100)
+            BigDecimal materialAndLaborCost = materialCost.add(laborCost);
+            BigDecimal tax = materialAndLaborCost.multiply(taxMultiplier).setScale(2, RoundingMode.HALF_UP);
+            order.setMaterialCost(materialCost);
+            order.setLaborCost(laborCost);
+            order.setTax(tax);
+            // Total = (MaterialCost + LaborCost + Tax)
+            order.setTotal(materialAndLaborCost.add(tax));
+        }
+
+        private static boolean fitsLong(BigDecimal value) {
+            return value.unscaledValue().bitLength() < Long.SIZE;
+        }
+    }
+}
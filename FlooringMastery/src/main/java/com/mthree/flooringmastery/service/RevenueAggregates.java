@@ -0,0 +1,424 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.service;
+
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrdersDao;
+import com.mthree.flooringmastery.dto.Money;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.RevenueTotals;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * running totals of orders by day and by month, state and product. days are
+ * summed from orders dao the first time a report needs them, after that their
+ * totals are changed as orders are saved, edited and removed so reports do not
+ * walk the orders again. money amounts are summed as cents
+ *
+ * @author beshoy
+ */
+class RevenueAggregates {
+
+    // reads of a range that saw order changes are retried this many times before a read blocks changes
+    private static final int UNLOCKED_READ_ATTEMPTS = 3;
+
+    private final OrdersDao ordersDao;
+    // day, state and product keys sorted by day first so a range of days is one sub map
+    private final NavigableMap<PeriodKey, Totals> dailyTotals = new ConcurrentSkipListMap<>();
+    // same keys with first day of the month, holds totals of summed days only
+    private final NavigableMap<PeriodKey, Totals> monthlyTotals = new ConcurrentSkipListMap<>();
+    // first day -> last day of ranges of days summed from dao, ranges do not overlap
+    private final NavigableMap<LocalDate, LocalDate> summedRanges = new ConcurrentSkipListMap<>();
+    // order changes hold read lock so they run together, write lock is only held to start a read
+    // of dao and to apply what it read, so changes are not blocked while orders are read
+    private final ReadWriteLock summingLock = new ReentrantReadWriteLock();
+    // one range is read from dao at a time
+    private final Lock readingLock = new ReentrantLock();
+    // range being read from dao and number of order changes in it since read started, guarded by summingLock
+    private LocalDate readFrom;
+    private LocalDate readTo;
+    private final AtomicInteger readRangeChanges = new AtomicInteger();
+
+    /**
+     * creates totals with no summed days
+     *
+     * @param ordersDao dao days are summed from
+     */
+    RevenueAggregates(OrdersDao ordersDao) {
+        this.ordersDao = ordersDao;
+    }
+
+    /**
+     * starts a change of orders, dao and totals have to be changed between
+     * beginChange and endChange
+     */
+    void beginChange() {
+        summingLock.readLock().lock();
+    }
+
+    /**
+     * ends a change started by beginChange
+     */
+    void endChange() {
+        summingLock.readLock().unlock();
+    }
+
+    /**
+     * adds order to totals of its day and month, orders of days not summed
+     * yet are left to be summed from dao
+     *
+     * @param order saved order
+     */
+    void add(Order order) {
+        if (isSummed(order.getOrderDate())) {
+            apply(order, Totals.of(order));
+        } else {
+            countReadRangeChange(order.getOrderDate());
+        }
+    }
+
+    /**
+     * takes order out of totals of its day and month
+     *
+     * @param order removed order or order as it was before an edit
+     */
+    void remove(Order order) {
+        if (isSummed(order.getOrderDate())) {
+            apply(order, Totals.of(order).negate());
+        } else {
+            countReadRangeChange(order.getOrderDate());
+        }
+    }
+
+    /**
+     * gets totals of each day, state and product
+     *
+     * @param from first day
+     * @param to last day, included
+     * @return totals sorted by day, state and product
+     * @throws DataPersistenceException if days could not be summed from dao
+     */
+    List<RevenueTotals> getDailyTotals(LocalDate from, LocalDate to) throws DataPersistenceException {
+        sumDays(from, to);
+        return toRevenueTotals(dailyTotals, from, to.plusDays(1));
+    }
+
+    /**
+     * gets totals of each month, state and product
+     *
+     * @param from first month
+     * @param to last month, included
+     * @return totals sorted by month, state and product
+     * @throws DataPersistenceException if days could not be summed from dao
+     */
+    List<RevenueTotals> getMonthlyTotals(YearMonth from, YearMonth to) throws DataPersistenceException {
+        // every day of the months has to be summed before month totals are read
+        sumDays(from.atDay(1), to.atEndOfMonth());
+        return toRevenueTotals(monthlyTotals, from.atDay(1), to.plusMonths(1).atDay(1));
+    }
+
+    private void apply(Order order, Totals change) {
+        PeriodKey dayKey = PeriodKey.ofDay(order);
+        dailyTotals.compute(dayKey, (key, totals) -> Totals.plusOrDrop(totals, change));
+        monthlyTotals.compute(dayKey.toMonth(), (key, totals) -> Totals.plusOrDrop(totals, change));
+    }
+
+    private boolean isSummed(LocalDate day) {
+        Map.Entry<LocalDate, LocalDate> range = summedRanges.floorEntry(day);
+        return range != null && !range.getValue().isBefore(day);
+    }
+
+    /**
+     * counts change of an order in range being read from dao, read may or may
+     * not have seen it
+     */
+    private void countReadRangeChange(LocalDate day) {
+        if (readFrom != null && !day.isBefore(readFrom) && !day.isAfter(readTo)) {
+            readRangeChanges.incrementAndGet();
+        }
+    }
+
+    /**
+     * sums orders of days in range that were not summed before, orders of one
+     * date at a time are read from dao
+     *
+     * @param from first day
+     * @param to last day, included
+     * @throws DataPersistenceException
+     */
+    private void sumDays(LocalDate from, LocalDate to) throws DataPersistenceException {
+        if (from.isAfter(to) || isSummed(from, to)) {
+            return;
+        }
+        readingLock.lock();
+        try {
+            // summed ranges only change while reading lock is held
+            LocalDate day = from;
+            while (!day.isAfter(to)) {
+                Map.Entry<LocalDate, LocalDate> range = summedRanges.floorEntry(day);
+                if (range != null && !range.getValue().isBefore(day)) {
+                    day = range.getValue().plusDays(1);
+                    continue;
+                }
+                LocalDate nextRangeStart = summedRanges.higherKey(day);
+                LocalDate gapEnd = nextRangeStart == null || nextRangeStart.isAfter(to) ? to : nextRangeStart.minusDays(1);
+                // each gap is marked as soon as it is summed so a failed read later in range does not sum it twice
+                sumGap(day, gapEnd);
+                day = gapEnd.plusDays(1);
+            }
+        } finally {
+            readingLock.unlock();
+        }
+    }
+
+    private boolean isSummed(LocalDate from, LocalDate to) {
+        Map.Entry<LocalDate, LocalDate> range = summedRanges.floorEntry(from);
+        return range != null && !range.getValue().isBefore(to);
+    }
+
+    /**
+     * reads orders of days that have no totals yet without blocking order
+     * changes, read is thrown away and done again if an order of those days
+     * changed while it ran. the last attempt blocks changes so it always ends
+     *
+     * @param from first day
+     * @param to last day, included
+     * @throws DataPersistenceException
+     */
+    private void sumGap(LocalDate from, LocalDate to) throws DataPersistenceException {
+        for (int attempt = 0; attempt < UNLOCKED_READ_ATTEMPTS; attempt++) {
+            // changes started before this finish first, later ones are counted
+            setReadRange(from, to);
+            SortedMap<PeriodKey, Totals> gapTotals;
+            try {
+                gapTotals = readTotals(from, to);
+            } catch (DataPersistenceException | RuntimeException e) {
+                setReadRange(null, null);
+                throw e;
+            }
+            summingLock.writeLock().lock();
+            try {
+                readFrom = null;
+                readTo = null;
+                if (readRangeChanges.get() == 0) {
+                    applyGap(from, to, gapTotals);
+                    return;
+                }
+            } finally {
+                summingLock.writeLock().unlock();
+            }
+        }
+        summingLock.writeLock().lock();
+        try {
+            applyGap(from, to, readTotals(from, to));
+        } finally {
+            summingLock.writeLock().unlock();
+        }
+    }
+
+    private void setReadRange(LocalDate from, LocalDate to) {
+        summingLock.writeLock().lock();
+        try {
+            readFrom = from;
+            readTo = to;
+            readRangeChanges.set(0);
+        } finally {
+            summingLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * sums orders of days into new totals
+     *
+     * @param from first day
+     * @param to last day, included
+     * @return totals of days, state and product
+     * @throws DataPersistenceException
+     */
+    private SortedMap<PeriodKey, Totals> readTotals(LocalDate from, LocalDate to) throws DataPersistenceException {
+        try {
+            return ordersDao.streamOrders(from, to)
+                    .collect(Collectors.toMap(PeriodKey::ofDay, Totals::of, Totals::plus, TreeMap::new));
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof DataPersistenceException) {
+                throw (DataPersistenceException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * adds totals of days that have no totals yet and marks them summed,
+     * write lock must be held
+     */
+    private void applyGap(LocalDate from, LocalDate to, SortedMap<PeriodKey, Totals> gapTotals) {
+        gapTotals.forEach((key, totals) -> {
+            dailyTotals.put(key, totals);
+            monthlyTotals.merge(key.toMonth(), totals, Totals::plus);
+        });
+        markSummed(from, to);
+    }
+
+    /**
+     * records range as summed, joining it with ranges it overlaps or touches
+     *
+     * @param from first day
+     * @param to last day, included
+     */
+    private void markSummed(LocalDate from, LocalDate to) {
+        LocalDate start = from;
+        LocalDate end = to;
+        Map.Entry<LocalDate, LocalDate> previous = summedRanges.floorEntry(from);
+        if (previous != null && !previous.getValue().isBefore(from.minusDays(1))) {
+            start = previous.getKey();
+            end = previous.getValue().isAfter(end) ? previous.getValue() : end;
+        }
+        // ranges starting inside or right after the new range are joined into it
+        NavigableMap<LocalDate, LocalDate> joinedRanges = summedRanges.subMap(start, false, end.plusDays(1), true);
+        for (LocalDate rangeEnd : joinedRanges.values()) {
+            end = rangeEnd.isAfter(end) ? rangeEnd : end;
+        }
+        joinedRanges.clear();
+        summedRanges.put(start, end);
+    }
+
+    private static List<RevenueTotals> toRevenueTotals(NavigableMap<PeriodKey, Totals> periodTotals, LocalDate from, LocalDate toExcluded) {
+        List<RevenueTotals> revenueTotals = new ArrayList<>();
+        if (from.isBefore(toExcluded)) {
+            for (Map.Entry<PeriodKey, Totals> entry : periodTotals.subMap(PeriodKey.first(from), PeriodKey.first(toExcluded)).entrySet()) {
+                revenueTotals.add(entry.getValue().toRevenueTotals(entry.getKey()));
+            }
+        }
+        return revenueTotals;
+    }
+
+    /**
+     * day or first day of month, state and product of a totals entry
+     */
+    private static final class PeriodKey implements Comparable<PeriodKey> {
+
+        private static final Comparator<PeriodKey> ORDER = Comparator.comparing((PeriodKey key) -> key.periodStart)
+                .thenComparing((key) -> key.state).thenComparing((key) -> key.productType);
+
+        private final LocalDate periodStart;
+        private final String state;
+        private final String productType;
+
+        private PeriodKey(LocalDate periodStart, String state, String productType) {
+            this.periodStart = periodStart;
+            this.state = state;
+            this.productType = productType;
+        }
+
+        private static PeriodKey ofDay(Order order) {
+            return new PeriodKey(order.getOrderDate(), order.getState(), order.getProductType());
+        }
+
+        /**
+         * @return key sorted before all other keys of the period
+         */
+        private static PeriodKey first(LocalDate periodStart) {
+            return new PeriodKey(periodStart, "", "");
+        }
+
+        private PeriodKey toMonth() {
+            return new PeriodKey(periodStart.withDayOfMonth(1), state, productType);
+        }
+
+        @Override
+        public int compareTo(PeriodKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof PeriodKey && compareTo((PeriodKey) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (periodStart.hashCode() * 31 + state.hashCode()) * 31 + productType.hashCode();
+        }
+    }
+
+    /**
+     * summed orders, immutable so map updates can be retried safely
+     */
+    private static final class Totals {
+
+        private final long orderCount;
+        private final BigDecimal area;
+        private final long materialCost;
+        private final long laborCost;
+        private final long tax;
+        private final long total;
+
+        private Totals(long orderCount, BigDecimal area, long materialCost, long laborCost, long tax, long total) {
+            this.orderCount = orderCount;
+            this.area = area;
+            this.materialCost = materialCost;
+            this.laborCost = laborCost;
+            this.tax = tax;
+            this.total = total;
+        }
+
+        private static Totals of(Order order) {
+            return new Totals(1, order.getArea(), toCents(order.getMaterialCost()), toCents(order.getLaborCost()),
+                    toCents(order.getTax()), toCents(order.getTotal()));
+        }
+
+        /**
+         * adds change to totals of a key
+         *
+         * @param totals current totals, null if key has none
+         * @param change totals to add
+         * @return new totals or null when no orders are left so key is dropped
+         */
+        private static Totals plusOrDrop(Totals totals, Totals change) {
+            Totals changed = totals == null ? change : totals.plus(change);
+            return changed.orderCount == 0 ? null : changed;
+        }
+
+        private Totals plus(Totals other) {
+            return new Totals(orderCount + other.orderCount, area.add(other.area),
+                    Money.add(materialCost, other.materialCost), Money.add(laborCost, other.laborCost),
+                    Money.add(tax, other.tax), Money.add(total, other.total));
+        }
+
+        private Totals negate() {
+            return new Totals(-orderCount, area.negate(), -materialCost, -laborCost, -tax, -total);
+        }
+
+        private RevenueTotals toRevenueTotals(PeriodKey key) {
+            return new RevenueTotals(key.periodStart, key.state, key.productType, orderCount, area,
+                    Money.toBigDecimal(materialCost), Money.toBigDecimal(laborCost),
+                    Money.toBigDecimal(tax), Money.toBigDecimal(total));
+        }
+
+        /**
+         * order amounts are already cents, amounts with more decimals are
+         * rounded the same way orders are priced
+         */
+        private static long toCents(BigDecimal amount) {
+            return Money.toCents(amount.setScale(Money.SCALE, RoundingMode.HALF_UP));
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.tools;
+
+import com.mthree.flooringmastery.dao.AuditDaoFIleImpl;
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrdersDao;
+import com.mthree.flooringmastery.dao.OrdersDaoLazyFileImpl;
+import com.mthree.flooringmastery.dao.ProductsDaoFileImpl;
+import com.mthree.flooringmastery.dao.StatesDaoFileImpl;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.FlooringMasteryService;
+import com.mthree.flooringmastery.service.FlooringMasteryServiceImpl;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * generates orders history for load tests and benchmarks. writes a data folder
+ * laid out like the program's own: Orders/Orders_MMddyyyy.txt for every day,
+ * Data/Taxes.txt and Data/Products.txt. orders are priced by the service so
+ * they match what the program would have saved. states, products and
+ * customers are picked with a zipf distribution so a few of them get most
+ * orders, skew 0 picks evenly
+ *
+ * usage: OrderHistoryGenerator --output=folder [--days=365] [--ordersPerDay=100]
+ * [--startDate=2020-01-01] [--states=4] [--products=4] [--stateSkew=1.0]
+ * [--productSkew=1.0] [--customers=10000] [--customerSkew=1.0] [--seed=42]
+ *
+ * @author beshoy
+ */
+public class OrderHistoryGenerator {
+
+    private static final String DELIMITER = ",";
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+
+    // states and products shipped in Data folder, extra ones are made up after them
+    private static final String[][] STATES = {{"TX", "Texas", "4.45"}, {"WA", "Washington", "9.25"},
+    {"KY", "Kentucky", "6.00"}, {"CA", "Calfornia", "25.00"}};
+    private static final String[][] PRODUCTS = {{"Carpet", "2.25", "2.10"}, {"Laminate", "1.75", "2.10"},
+    {"Tile", "3.50", "4.15"}, {"Wood", "5.15", "4.75"}};
+    private static final String[] FIRST_NAMES = {"Ada", "Alan", "Grace", "Linus", "Barbara", "Dennis", "Margaret",
+        "Ken", "Frances", "John", "Radia", "Tim", "Katherine", "Donald", "Hedy", "Edsger"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Turing", "Hopper", "Torvalds", "Liskov", "Ritchie",
+        "Hamilton", "Thompson", "Allen", "Backus", "Perlman", "Berners-Lee", "Johnson", "Knuth", "Lamarr", "Dijkstra"};
+
+    private final Path outputFolder;
+    private final int days;
+    private final int ordersPerDay;
+    private final LocalDate startDate;
+    private final Random random;
+    private final List<String[]> states = new ArrayList<>();
+    private final List<String[]> products = new ArrayList<>();
+    private final String[] customers;
+    private final ZipfSampler stateSampler;
+    private final ZipfSampler productSampler;
+    private final ZipfSampler customerSampler;
+
+    public OrderHistoryGenerator(Path outputFolder, int days, int ordersPerDay, LocalDate startDate, int statesCount,
+            int productsCount, double stateSkew, double productSkew, int customersCount, double customerSkew, long seed) {
+        this.outputFolder = outputFolder;
+        this.days = days;
+        this.ordersPerDay = ordersPerDay;
+        this.startDate = startDate;
+        this.random = new Random(seed);
+        for (int i = 0; i < statesCount; i++) {
+            if (i < STATES.length) {
+                states.add(STATES[i]);
+            } else {
+                // made up two letter codes that do not clash with shipped states
+                String code = "" + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26);
+                String taxRate = BigDecimal.valueOf(random.nextInt(1000), 2).toPlainString();
+                states.add(new String[]{code, "State " + code, taxRate});
+            }
+        }
+        for (int i = 0; i < productsCount; i++) {
+            if (i < PRODUCTS.length) {
+                products.add(PRODUCTS[i]);
+            } else {
+                products.add(new String[]{"Product" + i, BigDecimal.valueOf(100 + random.nextInt(900), 2).toPlainString(),
+                    BigDecimal.valueOf(100 + random.nextInt(900), 2).toPlainString()});
+            }
+        }
+        this.customers = new String[customersCount];
+        for (int i = 0; i < customersCount; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            // some customers are companies with a comma in their name
+            customers[i] = i % 10 == 9 ? name + ", Inc." : name;
+        }
+        this.stateSampler = new ZipfSampler(statesCount, stateSkew);
+        this.productSampler = new ZipfSampler(productsCount, productSkew);
+        this.customerSampler = new ZipfSampler(customersCount, customerSkew);
+    }
+
+    public static void main(String[] args) throws IOException, DataPersistenceException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("options are given as --name=value: " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        if (!options.containsKey("output")) {
+            throw new IllegalArgumentException("--output folder is required");
+        }
+        OrderHistoryGenerator generator = new OrderHistoryGenerator(Paths.get(options.get("output")),
+                Integer.parseInt(options.getOrDefault("days", "365")),
+                Integer.parseInt(options.getOrDefault("ordersPerDay", "100")),
+                LocalDate.parse(options.getOrDefault("startDate", "2020-01-01")),
+                Integer.parseInt(options.getOrDefault("states", "4")),
+                Integer.parseInt(options.getOrDefault("products", "4")),
+                Double.parseDouble(options.getOrDefault("stateSkew", "1.0")),
+                Double.parseDouble(options.getOrDefault("productSkew", "1.0")),
+                Integer.parseInt(options.getOrDefault("customers", "10000")),
+                Double.parseDouble(options.getOrDefault("customerSkew", "1.0")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        long startTime = System.currentTimeMillis();
+        int ordersCount = generator.generate();
+        System.out.println("generated " + ordersCount + " orders in " + generator.days + " date files under "
+                + generator.outputFolder + " in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+
+    /**
+     * writes reference data and orders files
+     *
+     * @return number of generated orders
+     * @throws IOException
+     * @throws DataPersistenceException
+     */
+    public int generate() throws IOException, DataPersistenceException {
+        Path dataFolder = Files.createDirectories(outputFolder.resolve("Data"));
+        Path ordersFolder = Files.createDirectories(outputFolder.resolve("Orders"));
+        writeReferenceData(dataFolder);
+        // lazy dao with no memory budget keeps only the day being written in memory
+        OrdersDao ordersDao = new OrdersDaoLazyFileImpl(ordersFolder.toString(), DELIMITER,
+                outputFolder.resolve("DataExport.txt").toString(), ORDERS_HEADER, 0);
+        FlooringMasteryService service = new FlooringMasteryServiceImpl(
+                new ProductsDaoFileImpl(dataFolder.resolve("Products.txt").toString(), DELIMITER),
+                new StatesDaoFileImpl(dataFolder.resolve("Taxes.txt").toString(), DELIMITER),
+                ordersDao, new AuditDaoFIleImpl(outputFolder.resolve("audit.txt").toString()));
+        service.loadAllData();
+        int ordersCount = 0;
+        for (int day = 0; day < days; day++) {
+            LocalDate orderDate = startDate.plusDays(day);
+            for (int i = 0; i < ordersPerDay; i++) {
+                Order order = new Order();
+                order.setOrderDate(orderDate);
+                order.setCustomerName(customers[customerSampler.next(random)]);
+                order.setState(states.get(stateSampler.next(random))[0]);
+                order.setProductType(products.get(productSampler.next(random))[0]);
+                order.setArea(nextArea());
+                // service prices order and hands out its number
+                ordersDao.saveOrder(service.calcualteOrder(order));
+                ordersCount++;
+            }
+            ordersDao.saveOrders();
+        }
+        return ordersCount;
+    }
+
+    /**
+     * picks order area, most orders are a few hundred square feet and some are
+     * much larger, never below 100 which is the smallest area program allows
+     *
+     * @return area with two decimals
+     */
+    private BigDecimal nextArea() {
+        double area = 100 + Math.exp(5 + random.nextGaussian() * 0.8);
+        return BigDecimal.valueOf(Math.min(area, 10000)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private void writeReferenceData(Path dataFolder) throws IOException {
+        List<String> taxesLines = new ArrayList<>();
+        taxesLines.add("State,StateName,TaxRate");
+        states.forEach((state) -> taxesLines.add(String.join(DELIMITER, state)));
+        Files.write(dataFolder.resolve("Taxes.txt"), taxesLines);
+        List<String> productsLines = new ArrayList<>();
+        productsLines.add("ProductType,CostPerSquareFoot,LaborCostPerSquareFoot");
+        products.forEach((product) -> productsLines.add(String.join(DELIMITER, product)));
+        Files.write(dataFolder.resolve("Products.txt"), productsLines);
+    }
+
+    /**
+     * picks index between 0 and size with probability falling as 1 / (rank ^
+     * skew)
+     */
+    private static class ZipfSampler {
+
+        private final double[] cumulativeWeights;
+
+        private ZipfSampler(int size, double skew) {
+            cumulativeWeights = new double[size];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                total += 1 / Math.pow(i + 1, skew);
+                cumulativeWeights[i] = total;
+            }
+            for (int i = 0; i < size; i++) {
+                cumulativeWeights[i] /= total;
+            }
+        }
+
+        private int next(Random random) {
+            int index = Arrays.binarySearch(cumulativeWeights, random.nextDouble());
+            int position = index >= 0 ? index : -index - 1;
+            return Math.min(position, cumulativeWeights.length - 1);
+        }
+    }
+}
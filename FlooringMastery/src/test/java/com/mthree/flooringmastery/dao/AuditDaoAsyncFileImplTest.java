@@ -0,0 +1,173 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Audit Dao Async File Implementation Test")
+public class AuditDaoAsyncFileImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test async audit dao to write every entry before close returns")
+    public void testAsyncAuditDao_toDrainEntriesOnClose() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        // small queue so callers have to wait for writer
+        AuditDao auditDao = new AuditDaoAsyncFileImpl(auditFile.toString(), 4, 16, 50);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String entry = "Order Number " + i + ", CREATED";
+            futures.add(executor.submit(() -> {
+                auditDao.writeAuditEntry(entry);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        auditDao.close();
+        List<String> lines = Files.readAllLines(auditFile);
+        assertEquals(1000, lines.size(), "should be 1000 because entries are not dropped when queue is full");
+        for (int i = 0; i < 1000; i++) {
+            String entry = " : Order Number " + i + ", CREATED";
+            assertTrue(lines.stream().anyMatch((line) -> line.endsWith(entry)), "should contain entry " + i);
+        }
+        assertThrows(DataPersistenceException.class, () -> auditDao.writeAuditEntry("late entry"), "should throw because audit is closed");
+    }
+
+    @Test
+    @DisplayName("test async audit dao to keep writing after writer thread is interrupted")
+    public void testAsyncAuditDao_toKeepWriting_whenWriterInterrupted() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        AuditDao auditDao = new AuditDaoAsyncFileImpl(auditFile.toString(), 4, 16, 20);
+        auditDao.writeAuditEntry("Order Number 0, CREATED");
+        // entry is flushed so writer is waiting for the next one
+        auditDao.getOrderHistory(0);
+        Thread.getAllStackTraces().keySet().stream()
+                .filter((thread) -> thread.getName().equals("audit-writer") && thread.isAlive())
+                .forEach(Thread::interrupt);
+        // entries fill the queue many times over, callers would wait forever if writer stopped
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 1; i < 100; i++) {
+                auditDao.writeAuditEntry("Order Number " + i + ", CREATED");
+            }
+        }, "should not wait forever because writer keeps running");
+        auditDao.close();
+        assertEquals(100, Files.readAllLines(auditFile).size(), "should be 100 because no entry is lost");
+    }
+
+    @Test
+    @DisplayName("test async audit dao to write every accepted entry when closed while entries are made")
+    public void testAsyncAuditDao_toWriteAcceptedEntries_whenClosedConcurrently() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        AuditDao auditDao = new AuditDaoAsyncFileImpl(auditFile.toString(), 4, 16, 5);
+        AtomicInteger acceptedCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                // entries are made until close makes them fail
+                try {
+                    while (true) {
+                        auditDao.writeAuditEntry("DATA EXPORTED");
+                        acceptedCount.incrementAndGet();
+                    }
+                } catch (DataPersistenceException ex) {
+                    return null;
+                }
+            }));
+        }
+        Thread.sleep(100);
+        auditDao.close();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(acceptedCount.get(), Files.readAllLines(auditFile).size(), "should write every entry that did not fail");
+    }
+
+    @Test
+    @DisplayName("test async audit dao to flush entries after flush interval")
+    public void testAsyncAuditDao_toFlushAfterInterval() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        // batch is never filled, only time flushes entry
+        AuditDao auditDao = new AuditDaoAsyncFileImpl(auditFile.toString(), 16, 100, 20);
+        auditDao.writeAuditEntry("DATA EXPORTED");
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline
+                && (!Files.exists(auditFile) || Files.readAllLines(auditFile).isEmpty())) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, Files.readAllLines(auditFile).size(), "should be written without waiting for close");
+        auditDao.close();
+    }
+
+    @Test
+    @DisplayName("test async audit dao to find order history across rotated segments")
+    public void testAsyncAuditDao_toQueryRotatedSegments() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        // tiny segments so every few entries are rotated
+        AuditDao auditDao = new AuditDaoAsyncFileImpl(auditFile.toString(), 16, 1, 1, 200, 0);
+        for (int i = 0; i < 50; i++) {
+            auditDao.writeAuditEntry("Order Number " + (i % 5) + ", EDITED " + i);
+        }
+        List<String> history = auditDao.getOrderHistory(3);
+        auditDao.close();
+        long segmentsCount;
+        try ( Stream<Path> paths = Files.list(tempDir)) {
+            segmentsCount = paths.filter((path) -> path.getFileName().toString().endsWith(".gz")).count();
+        }
+        assertTrue(segmentsCount > 1, "should rotate audit file into segments");
+        assertEquals(10, history.size(), "should be 10 because every fifth entry is for order 3");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(history.get(i).endsWith("Order Number 3, EDITED " + (i * 5 + 3)), "should return entries in the order they were written");
+        }
+    }
+
+    @Test
+    @DisplayName("test async audit dao to rotate past a segment left without index")
+    public void testAsyncAuditDao_toRotate_whenSegmentHasNoIndex() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        Files.write(auditFile, Arrays.asList("2020-01-01T10:00 : Order Number 1, CREATED", "2020-01-01T10:05 : Order Number 2, CREATED"));
+        // rotation stopped after moving segment of audit file and before writing its index
+        Path orphanSegment = tempDir.resolve("audit-20200101100000000.gz");
+        Files.write(orphanSegment, new byte[]{1, 2, 3});
+        AuditDao auditDao = new AuditDaoAsyncFileImpl(auditFile.toString(), 16, 1, 1, 1, 0);
+        auditDao.writeAuditEntry("Order Number 1, EDITED");
+        auditDao.close();
+        List<String> history = auditDao.getOrderHistory(1);
+        long segmentsCount;
+        try ( Stream<Path> paths = Files.list(tempDir)) {
+            segmentsCount = paths.filter((path) -> path.getFileName().toString().endsWith(".gz")).count();
+        }
+        assertAll(
+                () -> assertEquals(2, history.size(), "should be 2 because entries of unfinished rotation are only counted once"),
+                () -> assertTrue(history.get(0).endsWith("Order Number 1, CREATED"), "should keep entry of unfinished rotation"),
+                () -> assertEquals(1, segmentsCount, "should be 1 because segment without index is replaced"),
+                () -> assertTrue(Files.exists(tempDir.resolve("audit-20200101100000000.idx")), "should write index of rotated segment")
+        );
+    }
+}
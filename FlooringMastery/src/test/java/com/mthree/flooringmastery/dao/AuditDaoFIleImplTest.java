@@ -0,0 +1,61 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Audit Dao File Implementation Test")
+public class AuditDaoFIleImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test audit dao to rotate audit file into compressed indexed segments")
+    public void testAuditDao_toRotateBySize() throws DataPersistenceException {
+        Path auditFile = tempDir.resolve("audit.txt");
+        AuditDao auditDao = new AuditDaoFIleImpl(auditFile.toString(), 100, 0);
+        auditDao.writeAuditEntry("Order Number 4, CREATED");
+        auditDao.writeAuditEntry("Order Number 7, CREATED");
+        auditDao.writeAuditEntry("Order Number 4, EDITED");
+        assertAll(
+                () -> assertTrue(Files.size(auditFile) < 100, "should be emptied by rotation once it reached 100 bytes"),
+                () -> assertTrue(Files.exists(tempDir.resolve("audit.txt")), "should keep writing to the same audit file"),
+                () -> assertEquals(2, auditDao.getOrderHistory(4).size(), "should find order 4 in segment and audit file"),
+                () -> assertTrue(auditDao.getOrderHistory(4).get(1).endsWith("Order Number 4, EDITED"), "should keep entries in the order they were written"),
+                () -> assertTrue(auditDao.getOrderHistory(5).isEmpty(), "should be empty because order 5 has no entries")
+        );
+    }
+
+    @Test
+    @DisplayName("test audit dao to return entries of a time window")
+    public void testAuditDao_toQueryTimeWindow() throws Exception {
+        Path auditFile = tempDir.resolve("audit.txt");
+        Files.write(auditFile, List.of(
+                "2020-08-06T10:30:29.453766 : Order Number 4, EDITED",
+                "2020-08-07T10:33:13.265411 : Order Number 5, EDITED",
+                "2020-08-08T10:53:14.442287 : DATA EXPORTED"), StandardCharsets.UTF_8);
+        // first entry is years old, next entry rotates the file by time
+        AuditDao auditDao = new AuditDaoFIleImpl(auditFile.toString(), 0, 60000);
+        auditDao.writeAuditEntry("Order Number 6, CREATED");
+        List<String> window = auditDao.getAuditEntries(LocalDateTime.parse("2020-08-07T00:00:00"), LocalDateTime.parse("2020-08-08T23:59:59"));
+        assertAll(
+                () -> assertEquals(0, Files.size(auditFile), "should be emptied because first entry is older than a minute"),
+                () -> assertEquals(2, window.size(), "should be 2 because two entries are within window"),
+                () -> assertEquals(4, auditDao.getAuditEntries(LocalDateTime.MIN, LocalDateTime.MAX).size(), "should return all entries")
+        );
+    }
+}
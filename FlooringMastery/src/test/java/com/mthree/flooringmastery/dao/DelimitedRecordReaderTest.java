@@ -0,0 +1,80 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Delimited Record Reader Test")
+public class DelimitedRecordReaderTest {
+
+    @Test
+    @DisplayName("test reader to parse decimals with same value and scale as BigDecimal constructor")
+    public void testReader_toParseDecimalsLikeBigDecimalConstructor() {
+        String[] values = {"249.00", "150", "0", "-4.15", "0.005", "1234567890123456789.25", "99999999999999999999"};
+        DelimitedRecordReader reader = createReader(String.join(",", values));
+        for (String value : values) {
+            BigDecimal parsed = reader.nextDecimal();
+            assertEquals(new BigDecimal(value), parsed, "should be equal to " + value);
+            assertEquals(new BigDecimal(value).scale(), parsed.scale(), "should keep scale of " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("test reader to read records with windows line breaks and no trailing line break")
+    public void testReader_toReadRecordsWithDifferentLineBreaks() {
+        DelimitedRecordReader reader = createReader("Header,Line\r\n1,Ada\r\n\r\n2,Lovelace");
+        reader.endRecord();
+        assertTrue(reader.hasNextRecord(), "should have first record");
+        assertEquals(1, reader.nextInt());
+        assertEquals("Ada", reader.nextString());
+        reader.endRecord();
+        assertTrue(reader.hasNextRecord(), "should skip blank line and have second record");
+        assertEquals(2, reader.nextInt());
+        assertEquals("Lovelace", reader.nextString());
+        reader.endRecord();
+        assertFalse(reader.hasNextRecord(), "should be false because there are no more records");
+    }
+
+    @Test
+    @DisplayName("test reader to restore escaped characters and share pooled strings")
+    public void testReader_toRestoreEscapedAndPoolStrings() {
+        DelimitedRecordReader reader = createReader("mike/ inc.,Tile\nJosé,Tile\n");
+        String firstName = reader.nextString('/', ',');
+        String firstProduct = reader.nextPooledString();
+        reader.endRecord();
+        String secondName = reader.nextString('/', ',');
+        String secondProduct = reader.nextPooledString();
+        assertAll(
+                () -> assertEquals("mike, inc.", firstName, "should replace / with comma"),
+                () -> assertEquals("José", secondName, "should decode UTF-8 name"),
+                () -> assertEquals("Tile", secondProduct),
+                () -> assertSame(firstProduct, secondProduct, "should be same string because value is pooled")
+        );
+    }
+
+    @Test
+    @DisplayName("test reader to throw exception when number is invalid")
+    public void testReader_toThrowException_whenNumberInvalid() {
+        assertThrows(NumberFormatException.class, () -> createReader("12a").nextInt());
+        assertThrows(NumberFormatException.class, () -> createReader("1.2.3").nextDecimal());
+        assertThrows(NumberFormatException.class, () -> createReader(",").nextDecimal());
+    }
+
+    private DelimitedRecordReader createReader(String content) {
+        // direct buffer also covers readers over mapped files
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return new DelimitedRecordReader(buffer, ',');
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Int Key Table Test")
+public class IntKeyTableTest {
+
+    @Test
+    @DisplayName("test int maps to match HashMap through puts, removes and resizes")
+    public void testIntMaps_toMatchHashMap() {
+        Random random = new Random(42);
+        IntIntMap intMap = new IntIntMap(4);
+        IntObjectMap<String> objectMap = new IntObjectMap<>(4);
+        Map<Integer, Integer> expected = new HashMap<>();
+        // keys from a small range so removes hit long probe runs
+        for (int i = 0; i < 200000; i++) {
+            int key = random.nextInt(5000) - 1000;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? IntIntMap.NO_VALUE : removed, intMap.remove(key), "should remove same value from int map");
+                assertEquals(removed == null ? null : removed.toString(), objectMap.remove(key), "should remove same value from object map");
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                Integer replaced = expected.put(key, value);
+                assertEquals(replaced == null ? IntIntMap.NO_VALUE : replaced, intMap.put(key, value), "should replace same value in int map");
+                assertEquals(replaced == null ? null : replaced.toString(), objectMap.put(key, Integer.toString(value)), "should replace same value in object map");
+            }
+        }
+        for (int key = -1000; key < 4000; key++) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? IntIntMap.NO_VALUE : value, intMap.get(key), "should find same value in int map");
+            assertEquals(value == null ? null : value.toString(), objectMap.get(key), "should find same value in object map");
+        }
+        assertAll(
+                () -> assertEquals(expected.size(), intMap.size(), "should have same size"),
+                () -> assertEquals(expected.size(), objectMap.size(), "should have same size"),
+                () -> assertEquals(expected.size(), objectMap.values().size(), "should list every value once")
+        );
+        intMap.clear();
+        objectMap.clear();
+        assertAll(
+                () -> assertEquals(0, intMap.size(), "should be empty after clear"),
+                () -> assertEquals(IntIntMap.NO_VALUE, intMap.get(expected.keySet().iterator().next()), "should not find cleared key"),
+                () -> assertNull(objectMap.get(expected.keySet().iterator().next()), "should not find cleared key")
+        );
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Off Heap Order Store Test")
+public class OffHeapOrderStoreTest {
+
+    private static final int SLOTS_PER_BUFFER = 64;
+
+    @Test
+    @DisplayName("test off heap store to read names written across many names buffers")
+    public void testOffHeapStore_toReadNamesAcrossNamesBuffers() {
+        OffHeapOrderStore store = new OffHeapOrderStore(SLOTS_PER_BUFFER);
+        List<Integer> slots = new ArrayList<>();
+        // names of 4000 bytes fill a names buffer every few hundred orders
+        for (int i = 0; i < 600; i++) {
+            slots.add(store.add(createOrder(i, createName(i, 4000))));
+        }
+        // a name bigger than a names buffer gets a buffer of its own
+        int bigSlot = store.add(createOrder(600, createName(600, OffHeapOrderStore.NAMES_BUFFER_BYTES + 10)));
+        assertTrue(store.offHeapBytes() > 2L * OffHeapOrderStore.NAMES_BUFFER_BYTES, "should use more than two names buffers");
+        for (int i = 0; i < 600; i++) {
+            assertEquals(createName(i, 4000), store.read(slots.get(i)).getCustomerName(), "should read name " + i + " from its buffer");
+        }
+        assertEquals(createName(600, OffHeapOrderStore.NAMES_BUFFER_BYTES + 10), store.read(bigSlot).getCustomerName(), "should read name bigger than a names buffer");
+    }
+
+    @Test
+    @DisplayName("test off heap store to give back name bytes of edited orders")
+    public void testOffHeapStore_toNotLeakNamesOfEditedOrders() {
+        OffHeapOrderStore store = new OffHeapOrderStore(SLOTS_PER_BUFFER);
+        List<Integer> slots = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            slots.add(store.add(createOrder(i, createName(i, 1000))));
+        }
+        // same order saved again and again, each save frees old slot and writes name again
+        int editedSlot = store.add(createOrder(100, createName(0, 1000)));
+        for (int edit = 1; edit <= 20000; edit++) {
+            store.free(editedSlot);
+            editedSlot = store.add(createOrder(100, createName(edit, 1000)));
+        }
+        long slotBytes = 2L * SLOTS_PER_BUFFER * OffHeapOrderStore.SLOT_BYTES;
+        assertTrue(store.offHeapBytes() <= slotBytes + 3L * OffHeapOrderStore.NAMES_BUFFER_BYTES,
+                "should not grow with every edit, 20 MB of names were written");
+        assertTrue(store.unusedNameBytes() <= OffHeapOrderStore.NAMES_BUFFER_BYTES, "should give back unused name bytes");
+        assertEquals(createName(20000, 1000), store.read(editedSlot).getCustomerName(), "should read last edited name");
+        for (int i = 0; i < 100; i++) {
+            assertEquals(createName(i, 1000), store.read(slots.get(i)).getCustomerName(), "should keep name " + i + " when names are compacted");
+        }
+    }
+
+    private String createName(int number, int length) {
+        char[] filler = new char[length];
+        Arrays.fill(filler, (char) ('a' + number % 26));
+        String prefix = number + " ";
+        return prefix + new String(filler, 0, length - prefix.length());
+    }
+
+    private Order createOrder(int orderNumber, String customerName) {
+        return new Order(LocalDate.of(2020, 1, 1), orderNumber, customerName,
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06"));
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Order Number Allocator File Implementation Test")
+public class OrderNumberAllocatorFileImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test allocator to not hand out saved numbers again after restart")
+    public void testAllocator_toNotReuseSavedNumbers() throws DataPersistenceException {
+        String orderNumberFile = tempDir.resolve("orders.sequence").toString();
+        OrderNumberAllocator allocator = new OrderNumberAllocatorFileImpl(orderNumberFile);
+        allocator.seed(3);
+        assertEquals(4, allocator.nextOrderNumber(), "should be 4, because last order number is 3");
+        assertEquals(5, allocator.nextOrderNumber(), "should be 5, because 4 was handed out");
+        allocator.saveOrderNumber();
+
+        // orders 4 and 5 were removed, highest order left is 3
+        OrderNumberAllocator reloadedAllocator = new OrderNumberAllocatorFileImpl(orderNumberFile);
+        reloadedAllocator.seed(3);
+        assertEquals(6, reloadedAllocator.nextOrderNumber(), "should be 6, because 5 was handed out before restart");
+    }
+
+    @Test
+    @DisplayName("test allocator to not hand out numbers again after a crash without saving")
+    public void testAllocator_toNotReuseNumbersAfterCrash() throws DataPersistenceException {
+        String orderNumberFile = tempDir.resolve("orders.sequence").toString();
+        OrderNumberAllocator allocator = new OrderNumberAllocatorFileImpl(orderNumberFile, 10);
+        allocator.seed(3);
+        assertEquals(4, allocator.nextOrderNumber(), "should be 4, because last order number is 3");
+        assertEquals(5, allocator.nextOrderNumber(), "should be 5, because 4 was handed out");
+
+        // program stopped before saving, orders 4 and 5 were removed so highest order left is 3
+        OrderNumberAllocator reloadedAllocator = new OrderNumberAllocatorFileImpl(orderNumberFile, 10);
+        reloadedAllocator.seed(3);
+        assertEquals(14, reloadedAllocator.nextOrderNumber(), "should be 14, because 4 to 13 were reserved before crash");
+    }
+
+    @Test
+    @DisplayName("test allocator to hand out unique numbers to concurrent callers")
+    public void testAllocator_toHandOutUniqueNumbers() throws Exception {
+        OrderNumberAllocator allocator = new OrderNumberAllocatorFileImpl();
+        allocator.seed(0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(executor.submit(allocator::nextOrderNumber));
+        }
+        Set<Integer> orderNumbers = new HashSet<>();
+        for (Future<Integer> future : futures) {
+            orderNumbers.add(future.get());
+        }
+        executor.shutdown();
+        assertEquals(1000, orderNumbers.size(), "should be 1000 because no number is handed out twice");
+        assertEquals(1001, allocator.nextOrderNumber(), "should be 1001, because 1000 numbers were handed out");
+    }
+}
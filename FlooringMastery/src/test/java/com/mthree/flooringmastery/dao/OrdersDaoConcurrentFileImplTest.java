@@ -0,0 +1,110 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Orders Dao Concurrent File Implementation Test")
+public class OrdersDaoConcurrentFileImplTest {
+
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final LocalDate FIRST_DATE = LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test concurrent orders dao to load orders from files")
+    public void testConcurrentOrdersDao_toLoadOrders() throws DataPersistenceException {
+        OrdersDao ordersDao = new OrdersDaoConcurrentFileImpl("TestData/Orders", ",", "TestData/TestDataExport.txt", ORDERS_HEADER, 16);
+        ordersDao.loadOrders();
+        assertAll(
+                () -> assertEquals(3, ordersDao.getAllOrders().size(), "should be 3, because all files has 3 orders"),
+                () -> assertEquals("Ada Lovelace", ordersDao.getOrder(FIRST_DATE, 1).getCustomerName(), "should be read from date file")
+        );
+    }
+
+    @Test
+    @DisplayName("test concurrent orders dao to keep every change made by concurrent threads")
+    public void testConcurrentOrdersDao_toNotLoseUpdates() throws Exception {
+        // few stripes so threads often share locks
+        OrdersDao ordersDao = new OrdersDaoConcurrentFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER, 4);
+        ordersDao.loadOrders();
+        int threads = 8;
+        int ordersPerThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ordersPerThread; i++) {
+                    int orderNumber = thread * ordersPerThread + i + 1;
+                    ordersDao.saveOrder(createOrder(FIRST_DATE.plusDays(i % 10), orderNumber, "customer " + orderNumber));
+                    // move every other order to another date, remove every fifth order
+                    if (i % 2 == 0) {
+                        ordersDao.saveOrder(createOrder(FIRST_DATE.plusDays(i % 7), orderNumber, "moved " + orderNumber));
+                    }
+                    if (i % 5 == 0) {
+                        ordersDao.removeOrder(ordersDao.getOrder(FIRST_DATE.plusDays(i % 2 == 0 ? i % 7 : i % 10), orderNumber));
+                    }
+                }
+                return null;
+            }));
+        }
+        // orders are saved to files while they are changed
+        futures.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 20; i++) {
+                ordersDao.saveOrders();
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        ordersDao.saveOrders();
+
+        int expectedCount = threads * ordersPerThread * 4 / 5;
+        int indexedCount = 0;
+        for (int day = 0; day < 10; day++) {
+            indexedCount += ordersDao.getAllOrders(FIRST_DATE.plusDays(day)).size();
+        }
+        assertEquals(expectedCount, ordersDao.getAllOrders().size(), "should keep every saved order that was not removed");
+        assertEquals(expectedCount, indexedCount, "should index every order under exactly one date");
+        assertEquals("moved 9", ordersDao.getOrder(FIRST_DATE.plusDays(1), 9).getCustomerName(), "should keep last change of order");
+
+        OrdersDao reloadedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+        reloadedOrdersDao.loadOrders();
+        assertEquals(expectedCount, reloadedOrdersDao.getAllOrders().size(), "should be equal because every change was saved to files");
+    }
+
+    private Order createOrder(LocalDate orderDate, int orderNumber, String customerName) {
+        return new Order(orderDate, orderNumber, customerName,
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06"));
+    }
+}
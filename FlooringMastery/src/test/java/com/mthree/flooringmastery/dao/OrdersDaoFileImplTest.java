@@ -5,9 +5,18 @@ package com.mthree.flooringmastery.dao;
 
 import com.mthree.flooringmastery.dto.Order;
 import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +24,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
@@ -25,6 +35,8 @@ import org.springframework.context.support.ClassPathXmlApplicationContext;
 @DisplayName("Orders Dao Implementation Test")
 public class OrdersDaoFileImplTest {
 
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+
     private OrdersDao ordersDao;
 
     public OrdersDaoFileImplTest() {
@@ -166,4 +178,204 @@ public class OrdersDaoFileImplTest {
             return;
         }
     }
+
+    @Test
+    @DisplayName("test orders dao to move order to new date when order date is changed")
+    public void testOrdersDao_toMoveOrderToNewDate() throws DataPersistenceException, NoOrderFoundException {
+        LocalDate originalDate = LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        LocalDate newDate = LocalDate.parse("06-03-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        // load test data
+        ordersDao.loadOrders();
+        Order movedOrder = ordersDao.getOrder(originalDate, 2);
+        Order editedOrder = new Order(newDate, 2, movedOrder.getCustomerName(), movedOrder.getState(), movedOrder.getTaxRate(),
+                movedOrder.getProductType(), movedOrder.getArea(), movedOrder.getCostPerSquareFoot(), movedOrder.getLaborCostPerSquareFoot(),
+                movedOrder.getMaterialCost(), movedOrder.getLaborCost(), movedOrder.getTax(), movedOrder.getTotal());
+        ordersDao.saveOrder(editedOrder);
+        assertAll(
+                () -> assertEquals(1, ordersDao.getAllOrders(originalDate).size(), "should be 1 because order 2 moved to another date"),
+                () -> assertEquals(3, ordersDao.getAllOrders(originalDate).get(0).getOrderNumber(), "should be 3 because it is the only order left"),
+                () -> assertEquals(editedOrder, ordersDao.getAllOrders(newDate).get(0), "should be equal because order moved to new date"),
+                () -> assertEquals(3, ordersDao.getAllOrders().size(), "should still be 3 because order was moved not added")
+        );
+    }
+
+    @Test
+    @DisplayName("test orders dao to load same orders when loading files in parallel")
+    public void testOrdersDao_toLoadSameOrdersInParallel() throws DataPersistenceException {
+        // one dao reads files one by one, the other reads them concurrently
+        OrdersDao sequentialOrdersDao = new OrdersDaoFileImpl("TestData/Orders/", ",", "TestData/TestDataExport.txt", ORDERS_HEADER, 1);
+        OrdersDao parallelOrdersDao = new OrdersDaoFileImpl("TestData/Orders/", ",", "TestData/TestDataExport.txt", ORDERS_HEADER, 4);
+        sequentialOrdersDao.loadOrders();
+        parallelOrdersDao.loadOrders();
+        assertEquals(3, parallelOrdersDao.getAllOrders().size(), "should be 3, because all files has 3 orders");
+        assertTrue(parallelOrdersDao.getAllOrders().containsAll(sequentialOrdersDao.getAllOrders()), "should contain same orders as sequential load");
+    }
+
+    @Test
+    @DisplayName("test orders dao to save only changed date files")
+    public void testOrdersDao_toSaveOnlyChangedDateFiles(@TempDir Path tempDir) throws DataPersistenceException, NoOrderFoundException, IOException {
+        // copy test orders files so saving does not change test data
+        OrdersDao tempOrdersDao = createTempOrdersDao(tempDir);
+        tempOrdersDao.loadOrders();
+        Path firstDateFile = tempDir.resolve("Orders_06012013.txt");
+        Path secondDateFile = tempDir.resolve("Orders_06022013.txt");
+        Path newDateFile = tempDir.resolve("Orders_08062020.txt");
+        // delete untouched file, saving should not write it back
+        Files.delete(secondDateFile);
+        Order testOrder = new Order(LocalDate.parse("08-06-2020", DateTimeFormatter.ofPattern("MM-dd-yyyy")), 4, "test, customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06"));
+        tempOrdersDao.saveOrder(testOrder);
+        // remove only order on first date, its file should be deleted
+        tempOrdersDao.removeOrder(tempOrdersDao.getOrder(LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy")), 1));
+        tempOrdersDao.saveOrders();
+        assertAll(
+                () -> assertTrue(Files.exists(newDateFile), "should exist because order was added for that date"),
+                () -> assertFalse(Files.exists(firstDateFile), "should be deleted because date has no orders left"),
+                () -> assertFalse(Files.exists(secondDateFile), "should not be written because date was not changed")
+        );
+        // reload saved orders to check new file content
+        OrdersDao reloadedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+        reloadedOrdersDao.loadOrders();
+        assertEquals(testOrder, reloadedOrdersDao.getOrder(testOrder.getOrderDate(), 4), "should be equal because order was saved to file");
+    }
+
+    @Test
+    @DisplayName("test orders dao to export orders by date then order number")
+    public void testOrdersDao_toExportOrdersSortedByDateAndNumber(@TempDir Path tempDir) throws DataPersistenceException, IOException {
+        Path exportFile = tempDir.resolve("export.txt");
+        OrdersDao tempOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", exportFile.toString(), ORDERS_HEADER);
+        tempOrdersDao.loadOrders();
+        // numbers and dates are saved out of order
+        for (int i = 0; i < 200; i++) {
+            int orderNumber = (i * 7919) % 200 + 1;
+            tempOrdersDao.saveOrder(new Order(LocalDate.of(2020, 1, 1).plusDays(orderNumber % 5), orderNumber, "customer " + orderNumber,
+                    "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                    new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                    new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06")));
+        }
+        tempOrdersDao.exportAllOrders();
+        List<String> rows = Files.readAllLines(exportFile);
+        List<String> sortedRows = rows.subList(1, rows.size()).stream()
+                .sorted(Comparator.comparing((String row) -> row.substring(row.lastIndexOf(',') + 1))
+                        .thenComparingInt((row) -> Integer.parseInt(row.substring(0, row.indexOf(',')))))
+                .collect(Collectors.toList());
+        assertAll(
+                () -> assertEquals(201, rows.size(), "should be header and 200 orders"),
+                () -> assertEquals(sortedRows, rows.subList(1, rows.size()), "should be sorted by date then order number")
+        );
+    }
+
+    @Test
+    @DisplayName("test orders dao to keep previous orders file when writing it fails")
+    public void testOrdersDao_toKeepOrdersFile_whenWriteFails(@TempDir Path tempDir) throws DataPersistenceException, NoOrderFoundException, IOException {
+        OrdersDao tempOrdersDao = createTempOrdersDao(tempDir);
+        tempOrdersDao.loadOrders();
+        Path firstDateFile = tempDir.resolve("Orders_06012013.txt");
+        String fileContent = Files.readString(firstDateFile);
+        // a folder in place of the temporary file makes the write fail
+        Files.createDirectory(tempDir.resolve("Orders_06012013.txt.tmp"));
+        Order order = tempOrdersDao.getOrder(LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy")), 1);
+        tempOrdersDao.removeOrder(order);
+        tempOrdersDao.saveOrder(new Order(order.getOrderDate(), 1, "Changed Name", order.getState(), order.getTaxRate(),
+                order.getProductType(), order.getArea(), order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot(),
+                order.getMaterialCost(), order.getLaborCost(), order.getTax(), order.getTotal()));
+        assertThrows(DataPersistenceException.class, () -> tempOrdersDao.saveOrders(), "should throw because orders file could not be written");
+        assertEquals(fileContent, Files.readString(firstDateFile), "should be unchanged because write failed");
+    }
+
+    @Test
+    @DisplayName("test orders dao to load orders from snapshot only for files that did not change")
+    public void testOrdersDao_toLoadFromSnapshotWhenCurrent(@TempDir Path tempDir) throws DataPersistenceException, NoOrderFoundException, IOException {
+        OrdersDao tempOrdersDao = createTempOrdersDao(tempDir);
+        Path snapshotFile = tempDir.resolve("orders.snapshot");
+        OrdersDao snapshotOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER, 1, null, snapshotFile.toString());
+        // snapshot does not exist yet so loading writes it
+        snapshotOrdersDao.loadOrders();
+        assertTrue(Files.exists(snapshotFile), "should exist because orders files were read");
+        tempOrdersDao.loadOrders();
+        List<Order> savedOrders = tempOrdersDao.getAllOrders();
+        LocalDate firstDate = LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+
+        // change orders file keeping its size and last modified time, snapshot should be preferred
+        Path firstDateFile = tempDir.resolve("Orders_06012013.txt");
+        FileTime fileTime = Files.getLastModifiedTime(firstDateFile);
+        String fileContent = Files.readString(firstDateFile);
+        Files.writeString(firstDateFile, fileContent.replace("Ada Lovelace", "Changed Name"));
+        Files.setLastModifiedTime(firstDateFile, fileTime);
+        OrdersDao reloadedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER, 1, null, snapshotFile.toString());
+        reloadedOrdersDao.loadOrders();
+        assertTrue(reloadedOrdersDao.getAllOrders().containsAll(savedOrders), "should contain saved orders because snapshot is current");
+        assertEquals("Ada Lovelace", reloadedOrdersDao.getOrder(firstDate, 1).getCustomerName());
+
+        // orders file size changed but last modified time did not, file should be read instead
+        Files.writeString(firstDateFile, fileContent.replace("Ada Lovelace", "Changed Names"));
+        Files.setLastModifiedTime(firstDateFile, fileTime);
+        OrdersDao fileOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER, 1, null, snapshotFile.toString());
+        fileOrdersDao.loadOrders();
+        assertEquals("Changed Names", fileOrdersDao.getOrder(firstDate, 1).getCustomerName());
+
+        // saving orders does not rewrite snapshot
+        byte[] snapshotContent = Files.readAllBytes(snapshotFile);
+        fileOrdersDao.removeOrder(fileOrdersDao.getOrder(firstDate, 1));
+        fileOrdersDao.saveOrders();
+        assertArrayEquals(snapshotContent, Files.readAllBytes(snapshotFile), "should be unchanged because snapshot is only written on load");
+        OrdersDao savedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER, 1, null, snapshotFile.toString());
+        savedOrdersDao.loadOrders();
+        assertEquals(2, savedOrdersDao.getAllOrders().size(), "should be 2 because removed order's file was deleted");
+    }
+
+    @Test
+    @DisplayName("test every orders dao to get orders of a date range sorted by date and order number")
+    public void testOrdersDao_toGetOrdersInDateRange(@TempDir Path tempDir) throws DataPersistenceException, IOException {
+        OrdersDao tempOrdersDao = createTempOrdersDao(tempDir);
+        tempOrdersDao.loadOrders();
+        LocalDate firstDate = LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        LocalDate secondDate = LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        LocalDate newDate = LocalDate.parse("08-06-2020", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        tempOrdersDao.saveOrder(new Order(newDate, 4, "test, customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06")));
+        tempOrdersDao.saveOrders();
+        String exportFile = tempDir.resolve("export.txt").toString();
+        List<OrdersDao> ordersDaos = List.of(
+                new OrdersDaoFileImpl(tempDir.toString(), ",", exportFile, ORDERS_HEADER),
+                new OrdersDaoLazyFileImpl(tempDir.toString(), ",", exportFile, ORDERS_HEADER, 0),
+                new OrdersDaoConcurrentFileImpl(tempDir.toString(), ",", exportFile, ORDERS_HEADER, 4),
+                new OrdersDaoCompactFileImpl(tempDir.toString(), ",", exportFile, ORDERS_HEADER),
+                new OrdersDaoOffHeapFileImpl(tempDir.toString(), ",", exportFile, ORDERS_HEADER));
+        for (OrdersDao rangeOrdersDao : ordersDaos) {
+            rangeOrdersDao.loadOrders();
+            String daoName = rangeOrdersDao.getClass().getSimpleName();
+            assertAll(
+                    () -> assertEquals(List.of(1, 2, 3), orderNumbers(rangeOrdersDao.getOrders(firstDate, secondDate)), daoName + " should return both 2013 dates"),
+                    () -> assertEquals(List.of(2, 3), orderNumbers(rangeOrdersDao.getOrders(secondDate, secondDate)), daoName + " should return one date when range is one day"),
+                    () -> assertEquals(List.of(2, 3, 4), rangeOrdersDao.streamOrders(secondDate, newDate.plusYears(1)).map(Order::getOrderNumber).collect(Collectors.toList()), daoName + " should stream dates from second date on"),
+                    () -> assertEquals(rangeOrdersDao.getAllOrders(newDate), rangeOrdersDao.getOrders(newDate.minusDays(1), newDate.plusDays(1)), daoName + " should return orders equal to date orders"),
+                    () -> assertTrue(rangeOrdersDao.getOrders(newDate, firstDate).isEmpty(), daoName + " should be empty because from date is after to date")
+            );
+        }
+    }
+
+    private List<Integer> orderNumbers(List<Order> orders) {
+        return orders.stream().map(Order::getOrderNumber).collect(Collectors.toList());
+    }
+
+    /**
+     * creates orders dao that reads from a copy of test orders files
+     *
+     * @param tempDir directory to copy test orders files to
+     * @return orders dao using copied files
+     * @throws IOException
+     */
+    private OrdersDao createTempOrdersDao(Path tempDir) throws IOException {
+        try ( Stream<Path> paths = Files.list(Paths.get("TestData/Orders"))) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.copy(path, tempDir.resolve(path.getFileName()));
+            }
+        }
+        return new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+    }
 }
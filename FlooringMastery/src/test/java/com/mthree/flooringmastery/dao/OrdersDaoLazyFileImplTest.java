@@ -0,0 +1,181 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Orders Dao Lazy File Implementation Test")
+public class OrdersDaoLazyFileImplTest {
+
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final LocalDate FIRST_DATE = LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+    private static final LocalDate SECOND_DATE = LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test lazy orders dao to load a date only when it is used")
+    public void testLazyOrdersDao_toLoadDateOnFirstUse() throws DataPersistenceException, NoOrderFoundException {
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl("TestData/Orders", ",", "TestData/TestDataExport.txt",
+                ORDERS_HEADER, Long.MAX_VALUE);
+        ordersDao.loadOrders();
+        assertFalse(ordersDao.isLoaded(FIRST_DATE), "should not be loaded before any of its orders is used");
+        assertEquals("Ada Lovelace", ordersDao.getOrder(FIRST_DATE, 1).getCustomerName(), "should be read from date file");
+        assertAll(
+                () -> assertTrue(ordersDao.isLoaded(FIRST_DATE), "should be loaded after its order was used"),
+                () -> assertFalse(ordersDao.isLoaded(SECOND_DATE), "should not be loaded because none of its orders was used"),
+                () -> assertEquals(3, ordersDao.getAllOrders().size(), "should be 3, because all files has 3 orders"),
+                () -> assertFalse(ordersDao.isLoaded(SECOND_DATE), "should not be loaded by reading all orders"),
+                () -> assertThrows(NoOrderFoundException.class, () -> ordersDao.getOrder(FIRST_DATE, 2), "should throw because order 2 is on another date")
+        );
+    }
+
+    @Test
+    @DisplayName("test lazy orders dao to find last order number without loading dates")
+    public void testLazyOrdersDao_toFindLastOrderNumberWithoutLoading() throws DataPersistenceException {
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl("TestData/Orders", ",", "TestData/TestDataExport.txt",
+                ORDERS_HEADER, Long.MAX_VALUE);
+        ordersDao.loadOrders();
+        assertAll(
+                () -> assertEquals(3, ordersDao.getLastOrderNumber(), "should be 3, because it is the highest number in files"),
+                () -> assertFalse(ordersDao.isLoaded(FIRST_DATE), "should not be loaded by reading order numbers"),
+                () -> assertFalse(ordersDao.isLoaded(SECOND_DATE), "should not be loaded by reading order numbers")
+        );
+    }
+
+    @Test
+    @DisplayName("test lazy orders dao to keep order number index within memory budget")
+    public void testLazyOrdersDao_toKeepIndexWithinBudget() throws DataPersistenceException {
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl("TestData/Orders", ",", tempDir.resolve("export.txt").toString(),
+                ORDERS_HEADER, 0);
+        ordersDao.loadOrders();
+        // reading all orders only peeks at dates
+        ordersDao.getAllOrders();
+        ordersDao.exportAllOrders();
+        ordersDao.getOrders(FIRST_DATE, SECOND_DATE);
+        assertEquals(0, ordersDao.indexedOrdersCount(), "should be 0 because peeks do not index order numbers");
+        ordersDao.getAllOrders(FIRST_DATE);
+        ordersDao.getAllOrders(SECOND_DATE);
+        assertEquals(2, ordersDao.indexedOrdersCount(), "should be 2 because only orders of the loaded date fit the budget");
+    }
+
+    @Test
+    @DisplayName("test lazy orders dao to close export file when a date can not be read")
+    public void testLazyOrdersDao_toCloseExportFile_whenDateReadFails() throws DataPersistenceException, IOException {
+        Path ordersFolder = Files.createDirectory(tempDir.resolve("orders"));
+        Path exportFile = tempDir.resolve("export.txt");
+        try ( Stream<Path> files = Files.list(Paths.get("TestData/Orders"))) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.copy(file, ordersFolder.resolve(file.getFileName()));
+            }
+        }
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl(ordersFolder.toString(), ",", exportFile.toString(),
+                ORDERS_HEADER, Long.MAX_VALUE);
+        ordersDao.loadOrders();
+        // second date file is broken after load, export finds it when reading that date
+        Files.write(ordersFolder.resolve("Orders_06022013.txt"), (ORDERS_HEADER + "\nnot an order\n").getBytes(StandardCharsets.UTF_8));
+        DataPersistenceException exception = assertThrows(DataPersistenceException.class, () -> ordersDao.exportAllOrders(),
+                "should throw because second date file can not be read");
+        // rows are buffered, they are only in the file if export closed it
+        assertAll(
+                () -> assertEquals("Could not read orders file Orders_06022013.txt", exception.getMessage(), "should name the broken file"),
+                () -> assertEquals(2, Files.readAllLines(exportFile).size(), "should be header and first date order written before failure")
+        );
+    }
+
+    @Test
+    @DisplayName("test lazy orders dao to drop least recently used date over memory budget")
+    public void testLazyOrdersDao_toEvictColdDates() throws DataPersistenceException, NoOrderFoundException {
+        // budget fits two orders, second date alone has two
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl("TestData/Orders", ",", "TestData/TestDataExport.txt",
+                ORDERS_HEADER, 2 * OrdersDaoLazyFileImpl.ESTIMATED_ORDER_BYTES);
+        ordersDao.loadOrders();
+        ordersDao.getAllOrders(FIRST_DATE);
+        ordersDao.getAllOrders(SECOND_DATE);
+        assertFalse(ordersDao.isLoaded(FIRST_DATE), "should be dropped because it is least recently used");
+        assertTrue(ordersDao.isLoaded(SECOND_DATE), "should stay loaded because it was just used");
+        // dropped date is read again when used
+        assertEquals("Ada Lovelace", ordersDao.getOrder(FIRST_DATE, 1).getCustomerName(), "should be read again from date file");
+    }
+
+    @Test
+    @DisplayName("test lazy orders dao to keep unsaved dates and save only changed dates")
+    public void testLazyOrdersDao_toKeepDirtyDatesUntilSaved() throws DataPersistenceException, NoOrderFoundException, IOException {
+        try ( Stream<Path> paths = Files.list(Paths.get("TestData/Orders"))) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.copy(path, tempDir.resolve(path.getFileName()));
+            }
+        }
+        // budget fits no orders, only unsaved and used dates stay loaded
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(),
+                ORDERS_HEADER, 0);
+        ordersDao.loadOrders();
+        Order testOrder = new Order(FIRST_DATE, 4, "test, customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06"));
+        ordersDao.saveOrder(testOrder);
+        ordersDao.getAllOrders(SECOND_DATE);
+        assertTrue(ordersDao.isLoaded(FIRST_DATE), "should stay loaded because it has unsaved changes");
+        String secondDateFile = Files.readString(tempDir.resolve("Orders_06022013.txt"));
+        ordersDao.saveOrders();
+        assertAll(
+                () -> assertFalse(ordersDao.isLoaded(FIRST_DATE), "should be dropped once its changes are saved"),
+                () -> assertEquals(secondDateFile, Files.readString(tempDir.resolve("Orders_06022013.txt")), "should not be rewritten because it did not change")
+        );
+
+        OrdersDao reloadedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+        reloadedOrdersDao.loadOrders();
+        assertEquals(testOrder, reloadedOrdersDao.getOrder(FIRST_DATE, 4), "should be equal because saved order was written to its date file");
+    }
+
+    @Test
+    @DisplayName("test lazy orders dao to remove moved order from its old date after the date was dropped")
+    public void testLazyOrdersDao_toMoveOrderFromDroppedDate() throws DataPersistenceException, NoOrderFoundException, IOException {
+        try ( Stream<Path> paths = Files.list(Paths.get("TestData/Orders"))) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.copy(path, tempDir.resolve(path.getFileName()));
+            }
+        }
+        // budget fits two orders and index of all three, first date is dropped when second date is used
+        OrdersDaoLazyFileImpl ordersDao = new OrdersDaoLazyFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(),
+                ORDERS_HEADER, 2 * OrdersDaoLazyFileImpl.ESTIMATED_ORDER_BYTES + 3 * OrdersDaoLazyFileImpl.ESTIMATED_INDEX_ENTRY_BYTES);
+        ordersDao.loadOrders();
+        Order order = ordersDao.getOrder(FIRST_DATE, 1);
+        ordersDao.getAllOrders(SECOND_DATE);
+        assertFalse(ordersDao.isLoaded(FIRST_DATE), "should be dropped because another date was used");
+        Order movedOrder = new Order(SECOND_DATE, 1, order.getCustomerName(), order.getState(), order.getTaxRate(),
+                order.getProductType(), order.getArea(), order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot(),
+                order.getMaterialCost(), order.getLaborCost(), order.getTax(), order.getTotal());
+        ordersDao.saveOrder(movedOrder);
+        ordersDao.saveOrders();
+
+        OrdersDao reloadedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+        reloadedOrdersDao.loadOrders();
+        assertAll(
+                () -> assertEquals(movedOrder, reloadedOrdersDao.getOrder(SECOND_DATE, 1), "should be saved under its new date"),
+                () -> assertFalse(Files.exists(tempDir.resolve("Orders_06012013.txt")), "should be deleted because its only order moved"),
+                () -> assertEquals(3, reloadedOrdersDao.getAllOrders().size(), "should be 3 because moved order is not duplicated")
+        );
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Orders Dao Off Heap File Implementation Test")
+public class OrdersDaoOffHeapFileImplTest {
+
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final LocalDate FIRST_DATE = LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+    private static final LocalDate SECOND_DATE = LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test off heap orders dao to return same orders as orders dao")
+    public void testOffHeapOrdersDao_toReturnSameOrders() throws DataPersistenceException, NoOrderFoundException {
+        OrdersDao offHeapOrdersDao = new OrdersDaoOffHeapFileImpl("TestData/Orders", ",", "TestData/TestDataExport.txt", ORDERS_HEADER);
+        OrdersDao ordersDao = new OrdersDaoFileImpl("TestData/Orders", ",", "TestData/TestDataExport.txt", ORDERS_HEADER);
+        offHeapOrdersDao.loadOrders();
+        ordersDao.loadOrders();
+        assertAll(
+                () -> assertEquals(new HashSet<>(ordersDao.getAllOrders()), new HashSet<>(offHeapOrdersDao.getAllOrders()), "should be equal because both read same files"),
+                () -> assertEquals(ordersDao.getAllOrders(SECOND_DATE), offHeapOrdersDao.getAllOrders(SECOND_DATE), "should be equal and sorted by order number"),
+                () -> assertEquals(ordersDao.getOrder(FIRST_DATE, 1), offHeapOrdersDao.getOrder(FIRST_DATE, 1), "should be equal to Ada Lovelace order"),
+                () -> assertThrows(NoOrderFoundException.class, () -> offHeapOrdersDao.getOrder(SECOND_DATE, 1), "should throw because order 1 is on another date")
+        );
+    }
+
+    @Test
+    @DisplayName("test off heap orders dao to keep values that do not fit slots exactly")
+    public void testOffHeapOrdersDao_toKeepExactValues() throws DataPersistenceException, NoOrderFoundException, IOException {
+        try ( Stream<Path> paths = Files.list(Paths.get("TestData/Orders"))) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.copy(path, tempDir.resolve(path.getFileName()));
+            }
+        }
+        // two slots per buffer so orders are spread over many buffers
+        OrdersDao offHeapOrdersDao = new OrdersDaoOffHeapFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER, 2);
+        offHeapOrdersDao.loadOrders();
+        // area without decimals and total with one decimal
+        Order unevenOrder = new Order(FIRST_DATE, 7, "uneven, customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.1"));
+        // same state and product as an order in file but priced with other rates
+        Order repricedOrder = new Order(SECOND_DATE, 8, "repriced customer",
+                "CA", new BigDecimal("20.00"), "Tile", new BigDecimal("100.00"),
+                new BigDecimal("3.00"), new BigDecimal("4.00"), new BigDecimal("300.00"),
+                new BigDecimal("400.00"), new BigDecimal("140.00"), new BigDecimal("840.00"));
+        offHeapOrdersDao.saveOrder(unevenOrder);
+        offHeapOrdersDao.saveOrder(repricedOrder);
+        assertEquals(unevenOrder, offHeapOrdersDao.getOrder(FIRST_DATE, 7), "should keep area and total scale");
+        assertEquals(repricedOrder, offHeapOrdersDao.getOrder(SECOND_DATE, 8), "should keep its own rates");
+        Order movedOrder = offHeapOrdersDao.getOrder(FIRST_DATE, 1);
+        movedOrder.setOrderDate(SECOND_DATE);
+        offHeapOrdersDao.saveOrder(movedOrder);
+        offHeapOrdersDao.removeOrder(repricedOrder);
+        // takes the slot freed by removed order
+        Order reusingOrder = new Order(SECOND_DATE, 9, "Ünïcode customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("100.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("350.00"),
+                new BigDecimal("415.00"), new BigDecimal("191.25"), new BigDecimal("956.25"));
+        offHeapOrdersDao.saveOrder(reusingOrder);
+        assertEquals(reusingOrder, offHeapOrdersDao.getOrder(SECOND_DATE, 9), "should read back name written in utf-8");
+        offHeapOrdersDao.removeOrder(reusingOrder);
+        offHeapOrdersDao.saveOrders();
+
+        OrdersDao reloadedOrdersDao = new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+        reloadedOrdersDao.loadOrders();
+        assertAll(
+                () -> assertEquals(movedOrder, reloadedOrdersDao.getOrder(SECOND_DATE, 1), "should be saved under its new date"),
+                () -> assertEquals(1, reloadedOrdersDao.getAllOrders(FIRST_DATE).size(), "should only have the uneven order left"),
+                () -> assertEquals(0, new BigDecimal("2381.1").compareTo(reloadedOrdersDao.getOrder(FIRST_DATE, 7).getTotal()), "should write total as it was saved"),
+                () -> assertThrows(NoOrderFoundException.class, () -> reloadedOrdersDao.getOrder(SECOND_DATE, 8), "should be removed")
+        );
+    }
+}
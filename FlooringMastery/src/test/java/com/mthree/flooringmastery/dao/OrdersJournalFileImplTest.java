@@ -0,0 +1,144 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dao;
+
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.NoOrderFoundException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Orders Journal File Implementation Test")
+public class OrdersJournalFileImplTest {
+
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test journal to keep every entry appended by concurrent callers")
+    public void testJournal_toKeepConcurrentEntries() throws Exception {
+        OrdersJournal journal = new OrdersJournalFileImpl(tempDir.resolve("orders.journal").toString(), 2);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String entry = "entry " + i;
+            futures.add(executor.submit(() -> {
+                journal.append(entry);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        List<String> entries = journal.readEntries();
+        assertEquals(200, entries.size(), "should be 200 because every append waits until entry is written");
+        for (int i = 0; i < 200; i++) {
+            assertTrue(entries.contains("entry " + i), "should contain entry " + i);
+        }
+        journal.clear();
+        assertTrue(journal.readEntries().isEmpty(), "should be empty after journal is cleared");
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("test journal to skip entry cut by a crash")
+    public void testJournal_toSkipIncompleteEntry() throws DataPersistenceException, IOException {
+        Path journalFile = tempDir.resolve("orders.journal");
+        OrdersJournal journal = new OrdersJournalFileImpl(journalFile.toString(), 0);
+        journal.append("complete entry");
+        // entry without line break was not fully written
+        Files.write(journalFile, "cut ent".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertEquals(List.of("complete entry"), journal.readEntries(), "should only contain complete entry");
+        journal.close();
+    }
+
+    @Test
+    @DisplayName("test orders dao to replay journal changes that were not saved")
+    public void testOrdersDao_toReplayUnsavedChanges() throws DataPersistenceException, NoOrderFoundException, IOException {
+        Files.copy(Path.of("TestData/Orders/Orders_06012013.txt"), tempDir.resolve("Orders_06012013.txt"));
+        Files.copy(Path.of("TestData/Orders/Orders_06022013.txt"), tempDir.resolve("Orders_06022013.txt"));
+        String journalFile = tempDir.resolve("orders.journal").toString();
+        OrdersJournal journal = new OrdersJournalFileImpl(journalFile, 0);
+        OrdersDao ordersDao = createOrdersDao(journal);
+        ordersDao.loadOrders();
+        LocalDate testDate = LocalDate.parse("08-06-2020", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        Order testOrder = new Order(testDate, 4, "test, customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06"));
+        ordersDao.saveOrder(testOrder);
+        ordersDao.removeOrder(ordersDao.getOrder(LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy")), 2));
+        journal.close();
+
+        // program stopped without saving, new dao reads files and journal
+        OrdersJournal reopenedJournal = new OrdersJournalFileImpl(journalFile, 0);
+        OrdersDao reloadedOrdersDao = createOrdersDao(reopenedJournal);
+        reloadedOrdersDao.loadOrders();
+        assertAll(
+                () -> assertEquals(testOrder, reloadedOrdersDao.getOrder(testDate, 4), "should be equal because save was journaled"),
+                () -> assertThrows(NoOrderFoundException.class, () -> reloadedOrdersDao.getOrder(LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy")), 2), "should throw because removal was journaled"),
+                () -> assertEquals(3, reloadedOrdersDao.getAllOrders().size(), "should be 3, one order added and one removed")
+        );
+        // saving writes changes into orders files and empties journal
+        reloadedOrdersDao.saveOrders();
+        assertTrue(reopenedJournal.readEntries().isEmpty(), "should be empty because changes are saved to files");
+        assertTrue(Files.exists(tempDir.resolve("Orders_08062020.txt")), "should exist because saved order was replayed");
+        reopenedJournal.close();
+    }
+
+    @Test
+    @DisplayName("test orders dao to keep journal when orders files could not be saved")
+    public void testOrdersDao_toKeepJournal_whenSaveFails() throws DataPersistenceException, NoOrderFoundException, IOException {
+        Files.copy(Path.of("TestData/Orders/Orders_06012013.txt"), tempDir.resolve("Orders_06012013.txt"));
+        OrdersJournal journal = new OrdersJournalFileImpl(tempDir.resolve("orders.journal").toString(), 0);
+        OrdersDao ordersDao = createOrdersDao(journal);
+        ordersDao.loadOrders();
+        LocalDate testDate = LocalDate.parse("08-06-2020", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        Order testOrder = new Order(testDate, 4, "test, customer",
+                "CA", new BigDecimal("25.00"), "Tile", new BigDecimal("249.00"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("871.50"),
+                new BigDecimal("1033.35"), new BigDecimal("476.21"), new BigDecimal("2381.06"));
+        ordersDao.saveOrder(testOrder);
+        // a folder in place of the temporary file makes the write fail
+        Path tempFile = Files.createDirectory(tempDir.resolve("Orders_08062020.txt.tmp"));
+        Files.createFile(tempFile.resolve("blocked"));
+        assertThrows(DataPersistenceException.class, () -> ordersDao.saveOrders(), "should throw because orders file could not be written");
+        assertEquals(1, journal.readEntries().size(), "should keep entry because change is not in orders files");
+        // once the file can be written the change is saved
+        Files.delete(tempFile.resolve("blocked"));
+        Files.delete(tempFile);
+        ordersDao.saveOrders();
+        assertAll(
+                () -> assertTrue(Files.exists(tempDir.resolve("Orders_08062020.txt")), "should exist because date stayed changed after failed save"),
+                () -> assertTrue(journal.readEntries().isEmpty(), "should be empty because changes are saved to files")
+        );
+        journal.close();
+    }
+
+    private OrdersDao createOrdersDao(OrdersJournal journal) {
+        return new OrdersDaoFileImpl(tempDir.toString(), ",", tempDir.resolve("export.txt").toString(),
+                ORDERS_HEADER, 1, journal);
+    }
+}
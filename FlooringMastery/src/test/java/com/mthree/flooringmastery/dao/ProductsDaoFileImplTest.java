@@ -4,7 +4,11 @@
 package com.mthree.flooringmastery.dao;
 
 import com.mthree.flooringmastery.dto.Product;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.AfterEach;
@@ -14,6 +18,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
@@ -26,6 +31,9 @@ public class ProductsDaoFileImplTest {
 
     private ProductsDao productsDao;
 
+    @TempDir
+    Path tempDir;
+
     public ProductsDaoFileImplTest() {
         ApplicationContext appContext
                 = new ClassPathXmlApplicationContext("classpath:applicationContext.xml");
@@ -99,4 +107,21 @@ public class ProductsDaoFileImplTest {
         assertNull(productsDao.getProduct("Paint"), " paint is not in product list");
         assertNull(productsDao.getProduct("nails"), " nails is not in product list");
     }
+
+    @Test
+    @DisplayName("test products dao to read products file again only when it changed")
+    public void testProductsDao_toReloadOnlyChangedFile() throws DataPersistenceException, IOException {
+        Path productsFile = tempDir.resolve("Products.txt");
+        Files.copy(Paths.get("TestData/TestProducts.txt"), productsFile);
+        ProductsDao cachedProductsDao = new ProductsDaoFileImpl(productsFile.toString(), ",");
+        cachedProductsDao.loadProducts();
+        Product loadedCarpet = cachedProductsDao.getProduct("Carpet");
+        cachedProductsDao.loadProducts();
+        assertSame(loadedCarpet, cachedProductsDao.getProduct("Carpet"), "should be same object because file did not change");
+        // new price changes file size so change is seen even within same modified time
+        Files.writeString(productsFile, Files.readString(productsFile).replace("Carpet,2.25", "Carpet,12.25"));
+        cachedProductsDao.loadProducts();
+        assertEquals(new BigDecimal("12.25"), cachedProductsDao.getProduct("Carpet").getCostPerSquareFoot(), "should be new price from changed file");
+        assertEquals(4, cachedProductsDao.getAllProducts().size(), "should still be 4 products");
+    }
 }
@@ -121,4 +121,20 @@ public class StatesDaoFileImplTest {
         assertNull(statesDao.getState("NY"), "New York is not in the stats list, should be null");
         assertNull(statesDao.getState("OH"), "Ohio is not in the stats list, should be null");   
     }
+
+    @Test
+    @DisplayName("Test states dao to return same read only lists until file changes")
+    public void testStatesDao_toReturnReadOnlySnapshot() throws DataPersistenceException {
+        StatesDao snapshotStatesDao = new StatesDaoFileImpl("TestData/TestTaxes.txt", ",");
+        assertEquals(0, snapshotStatesDao.getStatesSnapshot().getVersion(), "should be 0 before first load");
+        snapshotStatesDao.loadStates();
+        ReferenceDataSnapshot<State> snapshot = snapshotStatesDao.getStatesSnapshot();
+        snapshotStatesDao.loadStates();
+        assertAll(
+                () -> assertEquals(1, snapshotStatesDao.getStatesSnapshot().getVersion(), "should be 1 because file did not change on second load"),
+                () -> assertSame(snapshot.getItems(), snapshotStatesDao.getAllStates(), "should return snapshot list without copying"),
+                () -> assertSame(snapshot.getKeys(), snapshotStatesDao.getAllStatesCodes(), "should return snapshot codes without copying"),
+                () -> assertThrows(UnsupportedOperationException.class, () -> snapshotStatesDao.getAllStatesCodes().add("NY"), "should not allow changing states codes")
+        );
+    }
 }
@@ -0,0 +1,78 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.dto;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Money Test")
+public class MoneyTest {
+
+    @Test
+    @DisplayName("test money to convert amounts to cents and back")
+    public void testMoney_toConvertCents() {
+        assertAll(
+                () -> assertEquals(238106, Money.toCents(new BigDecimal("2381.06")), "should be 238106 cents"),
+                () -> assertEquals(24900, Money.toCents(new BigDecimal("249")), "should be 24900 cents"),
+                () -> assertEquals(new BigDecimal("2381.06"), Money.toBigDecimal(238106), "should be 2381.06 with 2 decimals"),
+                () -> assertEquals(new BigDecimal("-0.05"), Money.toBigDecimal(-5), "should be -0.05 with 2 decimals"),
+                () -> assertThrows(ArithmeticException.class, () -> Money.toCents(new BigDecimal("1.005")), "should throw because amount has 3 decimals"),
+                () -> assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1), "should throw instead of overflowing")
+        );
+    }
+
+    @Test
+    @DisplayName("test money to multiply and round same as BigDecimal half up")
+    public void testMoney_toMatchBigDecimalMultiply() {
+        // every pair of small values at every scale, covers all last digits and halves
+        for (int scale = 0; scale <= 5; scale++) {
+            for (int otherScale = 0; otherScale <= 5; otherScale++) {
+                for (long unscaled = -300; unscaled <= 300; unscaled++) {
+                    for (long otherUnscaled = -120; otherUnscaled <= 120; otherUnscaled++) {
+                        assertMultiplyMatches(unscaled, scale, otherUnscaled, otherScale);
+                    }
+                }
+            }
+        }
+        // random large values up to where product no longer fits a long
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            long unscaled = random.nextLong() >> random.nextInt(64);
+            long otherUnscaled = random.nextLong() >> random.nextInt(64);
+            int scale = random.nextInt(10) - 2;
+            int otherScale = random.nextInt(10) - 2;
+            try {
+                long cents = Money.multiply(unscaled, scale, otherUnscaled, otherScale);
+                assertEquals(bigDecimalCents(unscaled, scale, otherUnscaled, otherScale), BigInteger.valueOf(cents),
+                        "should be same as BigDecimal for " + unscaled + "e-" + scale + " * " + otherUnscaled + "e-" + otherScale);
+            } catch (ArithmeticException ex) {
+                // allowed only when BigDecimal result or product does not fit a long
+                BigInteger product = BigInteger.valueOf(unscaled).multiply(BigInteger.valueOf(otherUnscaled));
+                assertTrue(product.bitLength() >= Long.SIZE || bigDecimalCents(unscaled, scale, otherUnscaled, otherScale).bitLength() >= Long.SIZE
+                        || scale + otherScale - Money.SCALE > 18 || scale + otherScale - Money.SCALE < -18,
+                        "should only throw on overflow for " + unscaled + "e-" + scale + " * " + otherUnscaled + "e-" + otherScale);
+            }
+        }
+    }
+
+    private void assertMultiplyMatches(long unscaled, int scale, long otherUnscaled, int otherScale) {
+        assertEquals(bigDecimalCents(unscaled, scale, otherUnscaled, otherScale).longValueExact(),
+                Money.multiply(unscaled, scale, otherUnscaled, otherScale),
+                "should be same as BigDecimal for " + unscaled + "e-" + scale + " * " + otherUnscaled + "e-" + otherScale);
+    }
+
+    private BigInteger bigDecimalCents(long unscaled, int scale, long otherUnscaled, int otherScale) {
+        BigDecimal product = BigDecimal.valueOf(unscaled, scale).multiply(BigDecimal.valueOf(otherUnscaled, otherScale));
+        return product.setScale(2, RoundingMode.HALF_UP).unscaledValue();
+    }
+}
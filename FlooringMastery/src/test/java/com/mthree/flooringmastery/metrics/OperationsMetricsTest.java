@@ -0,0 +1,84 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.metrics;
+
+import com.mthree.flooringmastery.dao.AuditDao;
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Operations Metrics Test")
+public class OperationsMetricsTest {
+
+    @Test
+    @DisplayName("test histogram to report percentiles within bucket precision")
+    public void testHistogram_toReportPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos * 1000);
+        }
+        assertAll(
+                () -> assertEquals(100_000_000, histogram.getMax(), "should be largest recorded value"),
+                () -> assertEquals(50_000_000, histogram.getPercentile(50), 50_000_000 / 16.0, "should be within 1/16 of median"),
+                () -> assertEquals(99_000_000, histogram.getPercentile(99), 99_000_000 / 16.0, "should be within 1/16 of 99th percentile"),
+                () -> assertEquals(0, new LatencyHistogram().getPercentile(99), "should be 0 because nothing was recorded")
+        );
+    }
+
+    @Test
+    @DisplayName("test metrics to count calls and errors of instrumented interface and publish them over JMX")
+    public void testMetrics_toCountInstrumentedCalls() throws Exception {
+        OperationsMetrics metrics = new OperationsMetrics("com.mthree.flooringmastery:type=OperationsMetricsTest");
+        metrics.register();
+        List<String> entries = new ArrayList<>();
+        AuditDao auditDao = metrics.instrument(AuditDao.class, new AuditDao() {
+            @Override
+            public void writeAuditEntry(String entry) throws DataPersistenceException {
+                if (entry.isEmpty()) {
+                    throw new DataPersistenceException("empty entry");
+                }
+                entries.add(entry);
+            }
+
+            @Override
+            public List<String> getOrderHistory(int orderNumber) {
+                return entries;
+            }
+
+            @Override
+            public List<String> getAuditEntries(LocalDateTime from, LocalDateTime to) {
+                return entries;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        auditDao.writeAuditEntry("DATA EXPORTED");
+        auditDao.writeAuditEntry("DATA EXPORTED");
+        assertThrows(DataPersistenceException.class, () -> auditDao.writeAuditEntry(""), "should throw exception thrown by target");
+
+        CompositeData[] operations = (CompositeData[]) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("com.mthree.flooringmastery:type=OperationsMetricsTest"), "Operations");
+        metrics.unregister();
+        assertEquals(1, operations.length, "should only publish operations that were called");
+        assertAll(
+                () -> assertEquals("AuditDao.writeAuditEntry(String)", operations[0].get("name"), "should name operation by interface and method"),
+                () -> assertEquals(3L, operations[0].get("count"), "should count every call"),
+                () -> assertEquals(1L, operations[0].get("errorCount"), "should count failed call"),
+                () -> assertEquals(2, entries.size(), "should call target")
+        );
+    }
+}
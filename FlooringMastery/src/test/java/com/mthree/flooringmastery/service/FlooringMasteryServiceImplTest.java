@@ -3,11 +3,18 @@
  */
 package com.mthree.flooringmastery.service;
 
+import com.mthree.flooringmastery.dao.AuditDaoFIleImpl;
 import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrdersDaoFileImpl;
+import com.mthree.flooringmastery.dao.ProductsDaoFileImpl;
+import com.mthree.flooringmastery.dao.StatesDaoFileImpl;
 import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.RevenueTotals;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.AfterAll;
 import static org.junit.jupiter.api.Assertions.*;
@@ -60,6 +67,20 @@ public class FlooringMasteryServiceImplTest {
         assertFalse(service.getDateOrders(testDate).isEmpty(), "should not be empty because there are orders for that date in file");
     }
 
+    @Test
+    @DisplayName("test service to fail loading data when one of the files is missing")
+    public void testService_toFailLoadingMissingFile() {
+        // products file does not exist, states and orders are loaded at the same time
+        FlooringMasteryService brokenService = new FlooringMasteryServiceImpl(
+                new ProductsDaoFileImpl("TestData/MissingProducts.txt", ","),
+                new StatesDaoFileImpl("TestData/TestTaxes.txt", ","),
+                new OrdersDaoFileImpl("TestData/Orders/", ",", "TestData/TestDataExport.txt",
+                        "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total"),
+                new AuditDaoFIleImpl("TestData/TestAudit.txt"));
+        DataPersistenceException ex = assertThrows(DataPersistenceException.class, () -> brokenService.loadAllData(), "should throw because products file is missing");
+        assertEquals("Could not load products data into memory.", ex.getMessage(), "should keep products dao message");
+    }
+
     @Test
     @DisplayName("test service to return product from orders list")
     public void testService_toReturnProduct() throws DataPersistenceException, NoOrderFoundException {
@@ -173,4 +194,52 @@ public class FlooringMasteryServiceImplTest {
         );
     }
 
+    @Test
+    @DisplayName("test service to keep revenue totals as orders are saved, edited and removed")
+    public void testService_toKeepRevenueTotals() throws DataPersistenceException, NoOrderFoundException {
+        LocalDate testDate = LocalDate.parse("06-02-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        service.loadAllData();
+        List<RevenueTotals> loadedTotals = service.getMonthlyRevenue(YearMonth.of(2013, 6), YearMonth.of(2013, 6));
+        assertEquals(3, loadedTotals.size(), "should be 3 because each order has its own state and product");
+        assertEquals(new RevenueTotals(testDate, "WA", "Wood", 1, new BigDecimal("243.00"), new BigDecimal("1251.45"),
+                new BigDecimal("1154.25"), new BigDecimal("216.51"), new BigDecimal("2622.21")),
+                service.getDailyRevenue(testDate, testDate).get(1), "should be Doctor Who order, sorted after KY");
+        // second WA wood order on same day
+        Order testOrder = new Order(testDate, 10, "test customer",
+                "WA", new BigDecimal("9.25"), "Wood", new BigDecimal("100.00"),
+                new BigDecimal("5.15"), new BigDecimal("4.75"), new BigDecimal("515.00"),
+                new BigDecimal("475.00"), new BigDecimal("91.58"), new BigDecimal("1081.58"));
+        service.saveOrder(testOrder);
+        RevenueTotals savedTotals = service.getDailyRevenue(testDate, testDate).get(1);
+        Order editedOrder = new Order(testDate, 10, "test customer",
+                "KY", new BigDecimal("6.00"), "Wood", new BigDecimal("100.00"),
+                new BigDecimal("5.15"), new BigDecimal("4.75"), new BigDecimal("515.00"),
+                new BigDecimal("475.00"), new BigDecimal("59.40"), new BigDecimal("1049.40"));
+        service.editOrder(editedOrder);
+        List<RevenueTotals> editedTotals = service.getDailyRevenue(testDate, testDate);
+        service.removeOrder(testDate, 10);
+        assertAll(
+                () -> assertEquals(2, savedTotals.getOrderCount(), "should count both WA wood orders"),
+                () -> assertEquals(new BigDecimal("3703.79"), savedTotals.getTotal(), "should be 2622.21 + 1081.58"),
+                () -> assertEquals(3, editedTotals.size(), "should have KY wood totals after state is edited"),
+                () -> assertEquals(new BigDecimal("1049.40"), editedTotals.get(1).getTotal(), "should be edited order total"),
+                () -> assertEquals(1, editedTotals.get(2).getOrderCount(), "should only count Doctor Who order"),
+                () -> assertEquals(loadedTotals, service.getMonthlyRevenue(YearMonth.of(2013, 1), YearMonth.of(2013, 12)), "should be back to loaded totals after order is removed"),
+                () -> assertTrue(service.getDailyRevenue(testDate.plusDays(1), testDate.plusDays(30)).isEmpty(), "should be empty because there are no orders after that day")
+        );
+    }
+
+    @Test
+    @DisplayName("test service to return orders of a date range")
+    public void testService_toReturnOrdersInDateRange() throws DataPersistenceException {
+        LocalDate testDate = LocalDate.parse("06-01-2013", DateTimeFormatter.ofPattern("MM-dd-yyyy"));
+        service.loadAllData();
+        assertAll(
+                () -> assertEquals(3, service.getOrders(testDate, testDate.plusMonths(3)).size(), "should be 3 because all orders are in june 2013"),
+                () -> assertEquals(1, service.getOrders(testDate, testDate).get(0).getOrderNumber(), "should be Ada Lovelace order"),
+                () -> assertEquals(2, service.streamOrders(testDate.plusDays(1), testDate.plusDays(1)).count(), "should be 2 because second day has 2 orders"),
+                () -> assertTrue(service.getOrders(testDate.plusDays(2), testDate.plusYears(1)).isEmpty(), "should be empty because there are no later orders")
+        );
+    }
+
 }
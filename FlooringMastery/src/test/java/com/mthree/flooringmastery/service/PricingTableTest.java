@@ -0,0 +1,107 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.service;
+
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.ProductsDao;
+import com.mthree.flooringmastery.dao.ProductsDaoFileImpl;
+import com.mthree.flooringmastery.dao.StatesDao;
+import com.mthree.flooringmastery.dao.StatesDaoFileImpl;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.Product;
+import com.mthree.flooringmastery.dto.State;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Pricing Table Test")
+public class PricingTableTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test pricing table to price orders same as order formulas")
+    public void testPricingTable_toMatchOrderFormulas() throws DataPersistenceException, IOException {
+        // tax rates and costs with every kind of rounding in last digit
+        List<String> taxesLines = new ArrayList<>();
+        taxesLines.add("State,StateName,TaxRate");
+        for (int i = 0; i < 13; i++) {
+            taxesLines.add("S" + i + ",State " + i + "," + BigDecimal.valueOf(i * 237 % 3000, 2));
+        }
+        List<String> productsLines = new ArrayList<>();
+        productsLines.add("ProductType,CostPerSquareFoot,LaborCostPerSquareFoot");
+        for (int i = 0; i < 10; i++) {
+            productsLines.add("P" + i + "," + BigDecimal.valueOf(100 + i * 53, 2) + "," + BigDecimal.valueOf(95 + i * 71, 2));
+        }
+        Files.write(tempDir.resolve("Taxes.txt"), taxesLines);
+        Files.write(tempDir.resolve("Products.txt"), productsLines);
+        StatesDao statesDao = new StatesDaoFileImpl(tempDir.resolve("Taxes.txt").toString(), ",");
+        ProductsDao productsDao = new ProductsDaoFileImpl(tempDir.resolve("Products.txt").toString(), ",");
+        statesDao.loadStates();
+        productsDao.loadProducts();
+        PricingTable pricingTable = new PricingTable(statesDao.getStatesSnapshot(), productsDao.getProductsSnapshot());
+        // every cent from 100 to 110 square feet and random larger areas
+        List<BigDecimal> areas = new ArrayList<>();
+        for (int cents = 10000; cents <= 11000; cents++) {
+            areas.add(BigDecimal.valueOf(cents, 2));
+        }
+        // more than 2 decimals and areas too large for cents in a long
+        areas.add(new BigDecimal("123.456"));
+        areas.add(new BigDecimal("1E+3"));
+        areas.add(new BigDecimal("92233720368547758.07"));
+        areas.add(new BigDecimal("922337203685477580700000"));
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            areas.add(BigDecimal.valueOf(10000 + random.nextInt(10000000), 2));
+        }
+        for (State state : statesDao.getAllStates()) {
+            for (Product product : productsDao.getAllProducts()) {
+                for (BigDecimal area : areas) {
+                    Order tableOrder = new Order();
+                    tableOrder.setArea(area);
+                    pricingTable.getRates(state.getStateAbbreviation(), product.getProductType()).price(tableOrder);
+                    Order formulaOrder = priceWithFormulas(area, state, product);
+                    assertEquals(formulaOrder, tableOrder, "should be same for " + state.getStateAbbreviation() + ", " + product.getProductType() + ", " + area);
+                }
+            }
+        }
+        assertNull(pricingTable.getRates("NY", "P0"), "should be null because NY is not in taxes file");
+        assertNull(pricingTable.getRates("S0", "Paint"), "should be null because Paint is not in products file");
+    }
+
+    /**
+     * prices order with the formulas from business rules, one step at a time
+     */
+    private Order priceWithFormulas(BigDecimal area, State state, Product product) {
+        Order order = new Order();
+        order.setArea(area);
+        order.setTaxRate(state.getTaxRate());
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+        // MaterialCost = (Area * CostPerSquareFoot)
+        order.setMaterialCost(area.multiply(product.getCostPerSquareFoot()).setScale(2, RoundingMode.HALF_UP));
+        // LaborCost = (Area * LaborCostPerSquareFoot)
+        order.setLaborCost(area.multiply(product.getLaborCostPerSquareFoot()).setScale(2, RoundingMode.HALF_UP));
+        // Tax = (MaterialCost + LaborCost) * (TaxRate/100)
+        BigDecimal materialAndLaborCost = order.getMaterialCost().add(order.getLaborCost());
+        order.setTax(materialAndLaborCost.multiply(state.getTaxRate().divide(new BigDecimal("100"))).setScale(2, RoundingMode.HALF_UP));
+        // Total = (MaterialCost + LaborCost + Tax)
+        order.setTotal(order.getMaterialCost().add(order.getLaborCost()).add(order.getTax()));
+        return order;
+    }
+}
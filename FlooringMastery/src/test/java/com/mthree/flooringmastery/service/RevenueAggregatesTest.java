@@ -0,0 +1,186 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.service;
+
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrdersDao;
+import com.mthree.flooringmastery.dao.OrdersDaoFileImpl;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.dto.RevenueTotals;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Revenue Aggregates Test")
+public class RevenueAggregatesTest {
+
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final String[] STATES = {"CA", "KY", "TX", "WA"};
+    private static final String[] PRODUCTS = {"Carpet", "Laminate", "Tile", "Wood"};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test revenue aggregates to give same totals when summed from dao or order by order")
+    public void testRevenueAggregates_toMatchIncrementalTotals() throws DataPersistenceException, IOException {
+        Random random = new Random(42);
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            orders.add(createOrder(random, i, firstDate.plusDays(random.nextInt(400))));
+        }
+        OrdersDao ordersDao = createOrdersDao("summed");
+        for (Order order : orders) {
+            ordersDao.saveOrder(order);
+        }
+        RevenueAggregates summedAggregates = new RevenueAggregates(ordersDao);
+        // every day is summed before orders are added so each order is applied as it is saved
+        OrdersDao incrementalOrdersDao = createOrdersDao("incremental");
+        RevenueAggregates incrementalAggregates = new RevenueAggregates(incrementalOrdersDao);
+        incrementalAggregates.getMonthlyTotals(YearMonth.of(2020, 1), YearMonth.of(2021, 12));
+        for (Order order : orders) {
+            incrementalOrdersDao.saveOrder(order);
+            incrementalAggregates.add(order);
+        }
+        // orders added and removed again leave no trace
+        List<Order> removedOrders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            removedOrders.add(createOrder(random, 20000 + i, firstDate.plusDays(random.nextInt(500))));
+        }
+        removedOrders.forEach(incrementalAggregates::add);
+        removedOrders.forEach(incrementalAggregates::remove);
+
+        List<RevenueTotals> dailyTotals = summedAggregates.getDailyTotals(firstDate, firstDate.plusDays(499));
+        List<RevenueTotals> monthlyTotals = summedAggregates.getMonthlyTotals(YearMonth.of(2020, 1), YearMonth.of(2021, 12));
+        BigDecimal ordersTotal = orders.stream().map(Order::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertAll(
+                () -> assertEquals(dailyTotals, incrementalAggregates.getDailyTotals(firstDate, firstDate.plusDays(499)), "should have same day totals"),
+                () -> assertEquals(monthlyTotals, incrementalAggregates.getMonthlyTotals(YearMonth.of(2020, 1), YearMonth.of(2021, 12)), "should have same month totals"),
+                () -> assertEquals(orders.size(), monthlyTotals.stream().mapToLong(RevenueTotals::getOrderCount).sum(), "should count every order once"),
+                () -> assertEquals(ordersTotal, dailyTotals.stream().map(RevenueTotals::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add), "should sum totals of all orders"),
+                () -> assertEquals(ordersTotal, monthlyTotals.stream().map(RevenueTotals::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add), "should sum totals of all orders"),
+                () -> assertTrue(dailyTotals.stream().allMatch((totals) -> totals.getOrderCount() > 0), "should not keep empty totals"),
+                () -> assertEquals(dailyTotals.stream().filter((totals) -> totals.getPeriodStart().equals(firstDate)).collect(Collectors.toList()), summedAggregates.getDailyTotals(firstDate, firstDate), "should only return first day")
+        );
+    }
+
+    @Test
+    @DisplayName("test revenue aggregates to count orders changed before their days were summed once")
+    public void testRevenueAggregates_toSumOverlappingRangesOnce() throws DataPersistenceException, IOException {
+        Random random = new Random(7);
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        OrdersDao ordersDao = createOrdersDao("orders");
+        RevenueAggregates aggregates = new RevenueAggregates(ordersDao);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Order order = createOrder(random, i, firstDate.plusDays(random.nextInt(90)));
+            orders.add(order);
+            // days are not summed yet, change is left to summing from dao
+            ordersDao.saveOrder(order);
+            aggregates.add(order);
+        }
+        // ranges summed in pieces that overlap and touch
+        aggregates.getDailyTotals(firstDate.plusDays(10), firstDate.plusDays(20));
+        aggregates.getDailyTotals(firstDate.plusDays(15), firstDate.plusDays(40));
+        aggregates.getDailyTotals(firstDate.plusDays(41), firstDate.plusDays(50));
+        aggregates.getDailyTotals(firstDate, firstDate.plusDays(5));
+        List<RevenueTotals> monthlyTotals = aggregates.getMonthlyTotals(YearMonth.of(2020, 1), YearMonth.of(2020, 3));
+        BigDecimal ordersTotal = orders.stream().map(Order::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertAll(
+                () -> assertEquals(orders.size(), monthlyTotals.stream().mapToLong(RevenueTotals::getOrderCount).sum(), "should count every order once"),
+                () -> assertEquals(ordersTotal, monthlyTotals.stream().map(RevenueTotals::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add), "should sum totals of all orders"),
+                () -> assertEquals(orders.size(), aggregates.getDailyTotals(firstDate, firstDate.plusDays(89)).stream().mapToLong(RevenueTotals::getOrderCount).sum(), "should count every order once")
+        );
+    }
+
+    @Test
+    @DisplayName("test revenue aggregates to let orders change while days are read from dao")
+    public void testRevenueAggregates_toNotBlockChangesWhileReading() throws Exception {
+        Random random = new Random(11);
+        LocalDate firstDate = LocalDate.of(2020, 1, 1);
+        Path ordersFolder = Files.createDirectories(tempDir.resolve("orders"));
+        AtomicBoolean changeDone = new AtomicBoolean();
+        List<RevenueAggregates> aggregatesHolder = new ArrayList<>();
+        Order changedOrder = createOrder(random, 500, firstDate.plusDays(3));
+        // first read of the dao saves an order from another thread and waits for it
+        OrdersDao ordersDao = new OrdersDaoFileImpl(ordersFolder.toString(), ",", ordersFolder.resolve("export.txt").toString(), ORDERS_HEADER) {
+            @Override
+            public Stream<Order> streamOrders(LocalDate fromDate, LocalDate toDate) throws DataPersistenceException {
+                if (!changeDone.get()) {
+                    Thread writer = new Thread(() -> {
+                        RevenueAggregates aggregates = aggregatesHolder.get(0);
+                        aggregates.beginChange();
+                        try {
+                            saveOrder(changedOrder);
+                            aggregates.add(changedOrder);
+                        } catch (DataPersistenceException ex) {
+                            throw new IllegalStateException(ex);
+                        } finally {
+                            aggregates.endChange();
+                        }
+                        changeDone.set(true);
+                    });
+                    writer.start();
+                    try {
+                        writer.join(5000);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.streamOrders(fromDate, toDate);
+            }
+        };
+        ordersDao.loadOrders();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            orders.add(createOrder(random, i, firstDate.plusDays(random.nextInt(30))));
+            ordersDao.saveOrder(orders.get(i));
+        }
+        orders.add(changedOrder);
+        RevenueAggregates aggregates = new RevenueAggregates(ordersDao);
+        aggregatesHolder.add(aggregates);
+        List<RevenueTotals> monthlyTotals = aggregates.getMonthlyTotals(YearMonth.of(2020, 1), YearMonth.of(2020, 1));
+        BigDecimal ordersTotal = orders.stream().map(Order::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertAll(
+                () -> assertTrue(changeDone.get(), "should save order while days are read"),
+                () -> assertEquals(orders.size(), monthlyTotals.stream().mapToLong(RevenueTotals::getOrderCount).sum(), "should count order changed during read once"),
+                () -> assertEquals(ordersTotal, monthlyTotals.stream().map(RevenueTotals::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add), "should sum totals of all orders")
+        );
+    }
+
+    private OrdersDao createOrdersDao(String folder) throws DataPersistenceException, IOException {
+        Path ordersFolder = Files.createDirectories(tempDir.resolve(folder));
+        OrdersDao ordersDao = new OrdersDaoFileImpl(ordersFolder.toString(), ",", ordersFolder.resolve("export.txt").toString(), ORDERS_HEADER);
+        ordersDao.loadOrders();
+        return ordersDao;
+    }
+
+    private Order createOrder(Random random, int orderNumber, LocalDate orderDate) {
+        BigDecimal materialCost = BigDecimal.valueOf(random.nextInt(100000), 2);
+        BigDecimal laborCost = BigDecimal.valueOf(random.nextInt(100000), 2);
+        BigDecimal tax = BigDecimal.valueOf(random.nextInt(10000), 2);
+        return new Order(orderDate, orderNumber, "customer " + orderNumber, STATES[random.nextInt(STATES.length)],
+                new BigDecimal("6.00"), PRODUCTS[random.nextInt(PRODUCTS.length)], BigDecimal.valueOf(random.nextInt(100000), 2),
+                new BigDecimal("2.25"), new BigDecimal("2.10"), materialCost, laborCost, tax,
+                materialCost.add(laborCost).add(tax));
+    }
+}
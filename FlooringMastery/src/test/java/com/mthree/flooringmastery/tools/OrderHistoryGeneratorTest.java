@@ -0,0 +1,68 @@
+/*
+ * @Copyright Beshoy Bebawe 2020.
+ */
+package com.mthree.flooringmastery.tools;
+
+import com.mthree.flooringmastery.dao.AuditDaoFIleImpl;
+import com.mthree.flooringmastery.dao.DataPersistenceException;
+import com.mthree.flooringmastery.dao.OrdersDaoFileImpl;
+import com.mthree.flooringmastery.dao.ProductsDaoFileImpl;
+import com.mthree.flooringmastery.dao.StatesDaoFileImpl;
+import com.mthree.flooringmastery.dto.Order;
+import com.mthree.flooringmastery.service.FlooringMasteryService;
+import com.mthree.flooringmastery.service.FlooringMasteryServiceImpl;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ *
+ * @author beshoy
+ */
+@DisplayName("Order History Generator Test")
+public class OrderHistoryGeneratorTest {
+
+    private static final String ORDERS_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    private static final LocalDate START_DATE = LocalDate.of(2020, 1, 1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("test generator to write orders the program loads and prices the same")
+    public void testGenerator_toWriteLoadableOrders() throws IOException, DataPersistenceException {
+        // 6 states and products so made up ones are written too
+        int ordersCount = new OrderHistoryGenerator(tempDir, 3, 20, START_DATE, 6, 6, 1.0, 1.0, 50, 1.0, 7).generate();
+        assertEquals(60, ordersCount, "should be 60, because 3 days has 20 orders each");
+        try ( Stream<Path> paths = Files.list(tempDir.resolve("Orders"))) {
+            assertEquals(3, paths.count(), "should be one file per day");
+        }
+        OrdersDaoFileImpl ordersDao = new OrdersDaoFileImpl(tempDir.resolve("Orders").toString(), ",",
+                tempDir.resolve("export.txt").toString(), ORDERS_HEADER);
+        FlooringMasteryService service = new FlooringMasteryServiceImpl(
+                new ProductsDaoFileImpl(tempDir.resolve("Data/Products.txt").toString(), ","),
+                new StatesDaoFileImpl(tempDir.resolve("Data/Taxes.txt").toString(), ","),
+                ordersDao, new AuditDaoFIleImpl(tempDir.resolve("audit.txt").toString()));
+        service.loadAllData();
+        List<Order> orders = ordersDao.getAllOrders();
+        assertEquals(60, orders.size(), "should load every generated order");
+        assertEquals(20, ordersDao.getAllOrders(START_DATE.plusDays(2)).size(), "should be 20 orders on last day");
+        for (Order order : orders) {
+            assertTrue(order.getArea().compareTo(new BigDecimal("100")) >= 0, "should not be below smallest area");
+            assertEquals(order.getTotal(), service.calcualteOrder(order).getTotal(), "should be priced like the service does");
+        }
+        // same seed gives same customers
+        OrderHistoryGenerator sameSeed = new OrderHistoryGenerator(tempDir.resolve("again"), 3, 20, START_DATE, 6, 6, 1.0, 1.0, 50, 1.0, 7);
+        sameSeed.generate();
+        assertEquals(Files.readAllLines(tempDir.resolve("Orders/Orders_01012020.txt")),
+                Files.readAllLines(tempDir.resolve("again/Orders/Orders_01012020.txt")), "should write same file for same seed");
+    }
+}